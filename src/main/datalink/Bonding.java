@@ -0,0 +1,167 @@
+package src.main.datalink;
+
+import src.exceptions.ProtocolException;
+import src.main.resources.BondedFrameReceiver;
+import src.main.resources.BondedFrameSender;
+import src.main.resources.FrameReceiver;
+import src.main.resources.FrameSender;
+import src.main.resources.MessageReceiver;
+import src.main.resources.MessageSender;
+import src.main.resources.ReassemblyStore;
+import src.utilities.LinkContext;
+import src.utilities.TerminalStream;
+import src.utilities.Usage;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+
+public class Bonding {
+    private static final int defaultMtu = 20;          // default value for MTU
+    private static final long frameDelayMillis = 1;    // time each link takes to send a frame
+
+    /**
+     * In-memory link that takes frameDelayMillis per frame and can be made to fail.
+     */
+    private static class ThrottledLink extends FrameSender {
+        private final int failAfter;                   // frames sent before failing (0 = never)
+        private int framesSent = 0;
+
+        ThrottledLink(LinkContext context, BlockingQueue<String> channel, int failAfter) {
+            super(context, channel);
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public void sendFrame(String frame) throws ProtocolException {
+            if (failAfter > 0 && framesSent == failAfter) {
+                throw new ProtocolException("link failed after " + failAfter + " frames");
+            }
+            try {
+                Thread.sleep(frameDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProtocolException("sendFrame interrupted.");
+            }
+            super.sendFrame(frame);
+            framesSent++;
+        }
+    }
+
+    /**
+     * Send messages over a bonded link of in-memory links and check they all arrive in order
+     *
+     * @param mtu       the maximum frame length permitted by the data link protocol
+     * @param links     number of bonded links
+     * @param messages  messages to send
+     * @param failAfter frames link 0 sends before failing (0 = never)
+     * @throws Exception if unexpected error occurs
+     */
+
+    public static void run(int mtu, int links, int messages, int failAfter) throws Exception {
+        LinkContext context = new LinkContext();
+        context.setClassWidth("src.main.resources.BondedFrameSender".length());
+        TerminalStream terminal = new TerminalStream(context, "src.main.datalink.Bonding");
+
+        // The layers below report errors only, every frame on every link would flood the terminal otherwise
+        LinkContext linkContext = new LinkContext(new BufferedReader(new StringReader("")), System.out);
+        linkContext.setDebug(false);
+        linkContext.setClassWidth(context.getClassWidth());
+
+        terminal.printlnDiag("bonding test starting (mtu = " + mtu + ", links = " + links + ", messages = " + messages + ", fail after = " + failAfter + ")");
+        List<FrameSender> senders = new ArrayList<>();
+        List<FrameReceiver> receivers = new ArrayList<>();
+
+        for (int i = 0; i < links; i++) {
+            BlockingQueue<String> channel = new LinkedBlockingQueue<>();
+            senders.add(new ThrottledLink(linkContext, channel, i == 0 ? failAfter : 0));
+            receivers.add(new FrameReceiver(linkContext, channel));
+        }
+
+        BondedFrameSender bondedSender = new BondedFrameSender(senders, BondedFrameSender.DEFAULT_BACKLOG_LIMIT);
+        BondedFrameReceiver bondedReceiver = new BondedFrameReceiver(receivers, links * BondedFrameSender.DEFAULT_BACKLOG_LIMIT);
+        MessageSender messageSender = new MessageSender(mtu, bondedSender);
+        MessageReceiver messageReceiver = new MessageReceiver(mtu, bondedReceiver, new ReassemblyStore());
+
+        // Send from a thread of its own, the receiver reads concurrently
+        Thread sending = new Thread(() -> {
+            try {
+                for (int i = 0; i < messages; i++) {
+                    messageSender.sendMessage("message number " + i);
+                }
+                bondedSender.close();
+            } catch (ProtocolException e) {
+                terminal.printlnError("sendMessage threw an exception \"" + e.getMessage() + "\"");
+            }
+        }, "bonding-sender");
+
+        long start = System.nanoTime();
+        sending.start();
+
+        int received = 0;
+        int inOrder = 0;
+        String message;
+
+        while ((message = messageReceiver.receiveMessage()) != null) {
+            if (message.equals("message number " + received))
+                inOrder++;
+            received++;
+        }
+        sending.join();
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        terminal.printlnDiag("bonding test finished");
+        terminal.printlnDiag("  messages           = " + inOrder + " of " + messages + " received in order (" + received + " received)");
+        terminal.printlnDiag("  frames lost        = " + bondedReceiver.getLostCount());
+        terminal.printlnDiag("  duplicate frames   = " + bondedReceiver.getDuplicateCount());
+        terminal.printlnDiag("  out of window      = " + bondedReceiver.getOutOfWindowCount());
+        terminal.printlnDiag("  late frames        = " + bondedReceiver.getLateCount());
+        terminal.printlnDiag("  failed links       = " + bondedSender.getFailedLinkCount() + " of " + links);
+        terminal.printlnDiag("  wall time          = " + wallMillis + " ms");
+    }
+
+    /**
+     * Main method used when the program is executed from a command line.
+     *
+     * @param args the command line arguments
+     * @throws Exception if unexpected error occurs
+     */
+
+    public static void main(String[] args) throws Exception {
+        int mtu = defaultMtu;              // maximum transfer unit (frame length limit)
+        int links = 4;
+        int messages = 300;
+        int failAfter = 0;                 // link 0 never fails by default
+        Matcher matcher;
+
+        // Parse command line options
+        for (String arg : args) {
+            try {
+                if ((matcher = Usage.COMPILED_LINKS_COMMAND_LINE_ARG.matcher(arg)).find())
+                    links = Integer.parseInt(matcher.group("links"));
+                else if ((matcher = Usage.COMPILED_MESSAGES_COMMAND_LINE_ARG.matcher(arg)).find())
+                    messages = Integer.parseInt(matcher.group("messages"));
+                else if ((matcher = Usage.COMPILED_FAIL_AFTER_COMMAND_LINE_ARG.matcher(arg)).find())
+                    failAfter = Integer.parseInt(matcher.group("failAfter"));
+                else if ((matcher = Usage.COMPILED_MTU_COMMAND_LINE_ARG.matcher(arg)).find())
+                    mtu = Integer.parseInt(matcher.group("mtu"));
+
+                // Abort program if unrecognised argument found
+                else
+                    Usage.bondingUsageErrorExit("Unrecognised command line option " + arg, defaultMtu);
+            } catch (NumberFormatException e) {
+                Usage.bondingUsageErrorExit("Bad value on command line " + arg, defaultMtu);
+            }
+        }
+
+        if (links < 1)
+            Usage.bondingUsageErrorExit("At least one link is needed", defaultMtu);
+
+        // Run Bonding with options specified
+        run(mtu, links, messages, failAfter);
+    }
+}
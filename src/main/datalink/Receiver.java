@@ -2,6 +2,7 @@ package src.main.datalink;
 
 import src.main.resources.MessageReceiver;
 import src.utilities.Usage;
+import src.utilities.LinkContext;
 import src.utilities.TerminalStream;
 
 import java.util.regex.Matcher;
@@ -14,26 +15,49 @@ public class Receiver {
     /**
      * Run test (version with all options)
      *
-     * @param mtu   the maximum frame length permitted by the data link protocol
-     * @param debug true = enable debug mode, false = disable
+     * @param mtu       the maximum frame length permitted by the data link protocol
+     * @param debug     true = enable debug mode, false = disable
+     * @param multiplex true = messages are multiplexed over logical streams
      * @throws Exception if unexpected error occurs
      */
 
-    public static void run(int mtu, boolean debug) throws Exception {
-        TerminalStream terminal = new TerminalStream("src.main.datalink.Receiver");
-        TerminalStream.setDebug(debug);
-        TerminalStream.setClassWidth("src.main.resources.MessageReceiver".length()); // Set field width to length of longest class name
-        TerminalStream.setStop(stop);
+    public static void run(int mtu, boolean debug, boolean multiplex) throws Exception {
+        // Each run gets its own link context, so several links can share one process
+        LinkContext context = new LinkContext();
+        context.setDebug(debug);
+        context.setClassWidth("src.main.resources.MessageReceiver".length()); // Set field width to length of longest class name
+        context.setStop(stop);
+        TerminalStream terminal = new TerminalStream(context, "src.main.datalink.Receiver");
 
         // Create data link layer message receiver (which also creates physical layer)
-        terminal.printlnDiag("test rig starting (mtu = " + mtu + ", debug = " + debug + ")");
-        MessageReceiver dataLinkLayer = new MessageReceiver(mtu);
+        terminal.printlnDiag("test rig starting (mtu = " + mtu + ", debug = " + debug + ", multiplex = " + multiplex + ")");
+        MessageReceiver dataLinkLayer = new MessageReceiver(context, mtu);
 
         // Give instructions on how to stop the test
         terminal.printlnDiag("frame entry loop starting");
         terminal.printlnDiag("enter one frame per line (no \"quotes\" required)");
         terminal.printlnDiag("enter \"" + stop + "\" to stop test");
 
+        // Frames of many streams may be interleaved, messages are reported as each stream completes
+        if (multiplex) {
+            terminal.printlnDiag();
+            terminal.printlnDiag("calling receiveStreams...");
+            dataLinkLayer.getReassemblyStore().setEvictionListener((streamId, reason, bufferedLength) ->
+                    terminal.printlnError("stream " + streamId + " incomplete message dropped (" + reason + ", " + bufferedLength + " characters buffered)"));
+
+            try {
+                dataLinkLayer.receiveStreams((streamId, message) ->
+                        terminal.printlnDiagOrRaw("stream " + streamId + " message received = \"" + message + "\"", streamId + ":" + message));
+                terminal.printlnDiag("end of input stream reached");
+            } catch (Exception e) {
+                terminal.printlnError("receiveStreams threw an exception \"" + e.getMessage() + "\"");
+            }
+
+            terminal.printlnDiag();
+            terminal.printlnDiag("test rig finished");
+            return;
+        }
+
         // Repeats until end of input stream reached - that is "." entered by the user
         while (true) {
             terminal.printlnDiag();
@@ -72,15 +96,24 @@ public class Receiver {
     public static void main(String[] args) throws Exception {
         int mtu = defaultMtu;              // maximum transfer unit (frame length limit)
         boolean debug = true;              // enable by default
+        boolean multiplex = false;         // single message at a time by default
         Matcher mtuMatcher;
         Matcher debugMatcher;
+        Matcher multiplexMatcher;
 
         // Parse command line options
         for (String arg : args) {
             mtuMatcher = Usage.COMPILED_MTU_COMMAND_LINE_ARG.matcher(arg);
             debugMatcher = Usage.COMPILED_DEBUG_COMMAND_LINE_ARG.matcher(arg);
+            multiplexMatcher = Usage.COMPILED_MULTIPLEX_COMMAND_LINE_ARG.matcher(arg);
 
-            if (debugMatcher.find()) {
+            if (multiplexMatcher.find()) {
+                try {
+                    multiplex = Boolean.parseBoolean(multiplexMatcher.group("multiplex"));
+                } catch (Exception e) {
+                    Usage.usageErrorExit("Bad or missing 'multiplex' value on command line", defaultMtu);
+                }
+            } else if (debugMatcher.find()) {
                 try {
                     debug = Boolean.parseBoolean(debugMatcher.group("debug"));
                 } catch (Exception e) {
@@ -101,6 +134,6 @@ public class Receiver {
         }
 
         // Run Receiver with options specified
-        run(mtu, debug);
+        run(mtu, debug, multiplex);
     }
 }
@@ -1,34 +1,42 @@
 package src.main.datalink;
 
 import src.main.resources.MessageSender;
+import src.utilities.LinkContext;
 import src.utilities.TerminalStream;
 import src.utilities.Usage;
 
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Sender {
     private static final int defaultMtu = 12;   // default value for MTU
     private static final String stop = ".";     // user enters this to quit (null = disable)
+    private static final Pattern STREAM_MESSAGE_PATTERN = Pattern.compile("^(?<stream>\\d{1,4}):(?<message>.*)$", Pattern.DOTALL);
 
     /**
      * Run test (version with all options)
      *
-     * @param mtu   the maximum frame length permitted by the data link protocol
-     * @param debug true = enable debug mode, false = disable
+     * @param mtu       the maximum frame length permitted by the data link protocol
+     * @param debug     true = enable debug mode, false = disable
+     * @param multiplex true = messages are multiplexed over logical streams
      * @throws Exception if unexpected error occurs
      */
 
-    public static void run(int mtu, boolean debug) throws Exception {
-        TerminalStream terminal = new TerminalStream("src.main.datalink.Sender");
-        TerminalStream.setDebug(debug);
-        TerminalStream.setClassWidth("src.main.resources.MessageSender".length());
-        TerminalStream.setStop(stop);
+    public static void run(int mtu, boolean debug, boolean multiplex) throws Exception {
+        // Each run gets its own link context, so several links can share one process
+        LinkContext context = new LinkContext();
+        context.setDebug(debug);
+        context.setClassWidth("src.main.resources.MessageSender".length()); // Set field width to length of longest class name
+        context.setStop(stop);
+        TerminalStream terminal = new TerminalStream(context, "src.main.datalink.Sender");
 
-        terminal.printlnDiag("test rig starting (mtu = " + mtu + ", debug = " + debug + ")");
-        MessageSender dataLinkLayer = new MessageSender(mtu);
+        terminal.printlnDiag("test rig starting (mtu = " + mtu + ", debug = " + debug + ", multiplex = " + multiplex + ")");
+        MessageSender dataLinkLayer = new MessageSender(context, mtu);
 
         terminal.printlnDiag("message entry loop starting");
         terminal.printlnDiag("enter one message per line (no \"quotes\" required)");
+        if (multiplex)
+            terminal.printlnDiag("prefix each message with its stream ID i.e. 7:hello");
         terminal.printlnDiag("enter \"" + stop + "\" to stop test");
 
         while (true) {
@@ -45,7 +53,16 @@ public class Sender {
             // Trap any exception so can report before terminating program
             try {
                 terminal.printlnDiag("calling sendMessage...");
-                dataLinkLayer.sendMessage(message);
+                if (multiplex) {
+                    Matcher streamMatcher = STREAM_MESSAGE_PATTERN.matcher(message);
+                    if (!streamMatcher.find()) {
+                        terminal.printlnError("message should be prefixed with its stream ID i.e. 7:hello");
+                        continue;
+                    }
+                    dataLinkLayer.sendMessage(Integer.parseInt(streamMatcher.group("stream")), streamMatcher.group("message"));
+                } else {
+                    dataLinkLayer.sendMessage(message);
+                }
                 terminal.printlnDiag("sendMessage returned normally");
             } catch (Exception e) {
                 terminal.printlnError("sendMessage threw an exception \"" + e.getMessage() + "\"");
@@ -70,15 +87,24 @@ public class Sender {
     public static void main(String[] args) throws Exception {
         int mtu = defaultMtu;              // maximum transfer unit (frame length limit)
         boolean debug = true;              // enable by default
+        boolean multiplex = false;         // single message at a time by default
         Matcher mtuMatcher;
         Matcher debugMatcher;
+        Matcher multiplexMatcher;
 
         // Parse command line options
         for (String arg : args) {
             mtuMatcher = Usage.COMPILED_MTU_COMMAND_LINE_ARG.matcher(arg);
             debugMatcher = Usage.COMPILED_DEBUG_COMMAND_LINE_ARG.matcher(arg);
+            multiplexMatcher = Usage.COMPILED_MULTIPLEX_COMMAND_LINE_ARG.matcher(arg);
 
-            if (debugMatcher.find()) {
+            if (multiplexMatcher.find()) {
+                try {
+                    multiplex = Boolean.parseBoolean(multiplexMatcher.group("multiplex"));
+                } catch (Exception e) {
+                    Usage.usageErrorExit("Bad or missing 'multiplex' value on command line", defaultMtu);
+                }
+            } else if (debugMatcher.find()) {
                 try {
                     debug = Boolean.parseBoolean(debugMatcher.group("debug"));
                 } catch (Exception e) {
@@ -99,6 +125,6 @@ public class Sender {
         }
 
         // Run Receiver with options specified
-        run(mtu, debug);
+        run(mtu, debug, multiplex);
     }
 }
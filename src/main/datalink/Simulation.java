@@ -0,0 +1,94 @@
+package src.main.datalink;
+
+import src.main.simulation.Simulator;
+import src.main.simulation.Topology;
+import src.utilities.LinkContext;
+import src.utilities.TerminalStream;
+import src.utilities.Usage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+public class Simulation {
+    private static final int defaultMtu = 64;                                   // default value for MTU
+    private static final long linkLatencyNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long linkCharactersPerSecond = 1_000_000;
+    private static final long messageIntervalNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int messageLength = 200;
+
+    /**
+     * Run a simulation of a random topology and report its results
+     *
+     * @param mtu        the maximum frame length permitted by the data link protocol
+     * @param nodes      number of nodes
+     * @param degree     links per node
+     * @param partitions threads to run the nodes on
+     * @param duration   virtual milliseconds during which messages are sent
+     * @throws Exception if unexpected error occurs
+     */
+
+    public static void run(int mtu, int nodes, int degree, int partitions, long duration) throws Exception {
+        LinkContext context = new LinkContext();
+        TerminalStream terminal = new TerminalStream(context, "src.main.datalink.Simulation");
+
+        terminal.printlnDiag("simulation starting (mtu = " + mtu + ", nodes = " + nodes + ", degree = " + degree + ", partitions = " + partitions + ", duration = " + duration + " ms)");
+        Topology topology = Topology.random(nodes, degree, linkLatencyNanos, linkCharactersPerSecond, 0);
+        Simulator simulator = new Simulator(topology, mtu, partitions);
+        terminal.printlnDiag("topology built (links = " + topology.getLinks().size() + ")");
+
+        long wallStart = System.nanoTime();
+        simulator.run(TimeUnit.MILLISECONDS.toNanos(duration), messageIntervalNanos, messageLength);
+        long wallNanos = Math.max(1, System.nanoTime() - wallStart);
+        double virtualSeconds = Math.max(1, simulator.getVirtualTimeNanos()) / 1e9;
+
+        terminal.printlnDiag("simulation finished");
+        terminal.printlnDiag("  virtual time       = " + String.format("%.3f s", virtualSeconds));
+        terminal.printlnDiag("  wall time          = " + String.format("%.3f s", wallNanos / 1e9));
+        terminal.printlnDiag("  events             = " + simulator.getEventCount() + String.format(" (%.0f per wall second)", simulator.getEventCount() / (wallNanos / 1e9)));
+        terminal.printlnDiag("  messages           = " + simulator.getMessagesDelivered() + " of " + simulator.getMessagesSent() + " delivered");
+        terminal.printlnDiag("  frames             = " + simulator.getFramesDelivered());
+        terminal.printlnDiag("  throughput         = " + String.format("%.0f characters per virtual second", simulator.getCharactersDelivered() / virtualSeconds));
+        terminal.printlnDiag("  latency            = " + String.format("%.3f ms average, %.3f ms maximum", simulator.getAverageLatencyNanos() / 1e6, simulator.getMaximumLatencyNanos() / 1e6));
+    }
+
+    /**
+     * Main method used when the program is executed from a command line.
+     *
+     * @param args the command line arguments
+     * @throws Exception if unexpected error occurs
+     */
+
+    public static void main(String[] args) throws Exception {
+        int mtu = defaultMtu;                                           // maximum transfer unit (frame length limit)
+        int nodes = 1000;
+        int degree = 4;
+        int partitions = Runtime.getRuntime().availableProcessors();
+        long duration = 1000;
+        Matcher matcher;
+
+        // Parse command line options
+        for (String arg : args) {
+            try {
+                if ((matcher = Usage.COMPILED_NODES_COMMAND_LINE_ARG.matcher(arg)).find())
+                    nodes = Integer.parseInt(matcher.group("nodes"));
+                else if ((matcher = Usage.COMPILED_DEGREE_COMMAND_LINE_ARG.matcher(arg)).find())
+                    degree = Integer.parseInt(matcher.group("degree"));
+                else if ((matcher = Usage.COMPILED_PARTITIONS_COMMAND_LINE_ARG.matcher(arg)).find())
+                    partitions = Integer.parseInt(matcher.group("partitions"));
+                else if ((matcher = Usage.COMPILED_DURATION_COMMAND_LINE_ARG.matcher(arg)).find())
+                    duration = Long.parseLong(matcher.group("duration"));
+                else if ((matcher = Usage.COMPILED_MTU_COMMAND_LINE_ARG.matcher(arg)).find())
+                    mtu = Integer.parseInt(matcher.group("mtu"));
+
+                // Abort program if unrecognised argument found
+                else
+                    Usage.simulationUsageErrorExit("Unrecognised command line option " + arg, defaultMtu);
+            } catch (NumberFormatException e) {
+                Usage.simulationUsageErrorExit("Bad value on command line " + arg, defaultMtu);
+            }
+        }
+
+        // Run Simulation with options specified
+        run(mtu, nodes, degree, Math.min(partitions, nodes), duration);
+    }
+}
@@ -0,0 +1,242 @@
+package src.main.resources;
+
+import src.exceptions.ProtocolException;
+import src.utilities.LinkContext;
+import src.utilities.TerminalStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Physical layer that receives the frames striped across several physical
+ * links by a BondedFrameSender and returns them in sequence number order.
+ * Each link is read by its own thread.  Frames arriving early wait in a
+ * reorder buffer of bounded size; when the buffer is full the missing frames
+ * are given up as lost so that a stalled or failed link cannot hold up the
+ * others.  Every frame is checked against a ReplayWindow as it arrives from
+ * its link, before the reorder buffer, and duplicates are dropped.  A frame
+ * is only recorded in the window once the message layer reports it verified
+ * (see frameVerified); until then a retransmission of a returned frame, which
+ * may have failed verification, is returned again in its place.  Consumers
+ * that never call frameVerified still get every frame in order, but copies of
+ * frames already returned are then passed on as retransmissions.
+ * Frames are returned with their sequence tag, which the message layer
+ * ignores like any other noise around the frame delimiters.
+ */
+
+public class BondedFrameReceiver extends FrameReceiver {
+    public static final int DEFAULT_REORDER_WINDOW = 256;     // frames held waiting for a missing one
+
+    private static final int MAXIMUM_SEQUENCE_DIGITS = 18;  // always fits a long
+    private static final String END_OF_LINK = new String("end of link");  // compared by identity, never equal to a received frame
+
+    private final TerminalStream terminal;
+    private final ArrayList<Thread> readers = new ArrayList<>();
+    private final BlockingQueue<String> arrivals;
+    private final TreeMap<Long, String> reorderBuffer = new TreeMap<>();
+    private final TreeSet<Long> unverified = new TreeSet<>();   // returned, not verified yet, at most reorderWindow
+    private final ReplayWindow replayWindow;
+    private final int reorderWindow;
+    private int openLinks;
+    private long nextSequence = 0;
+    // Only written by receiveFrame, volatile so they can be read while it blocks holding the lock
+    private volatile long lostCount = 0;
+    private volatile long bufferedDuplicateCount = 0;   // copies of a frame waiting in the reorder buffer
+    private volatile long lateCount = 0;                // arrived after being given up as lost
+
+    /**
+     * @param physicalLayers the links frames are striped across (at least one)
+     * @param reorderWindow  frames held waiting for a missing one, should cover
+     *                       the sender's links times their backlog limit
+     * @throws ProtocolException if error detected
+     */
+    public BondedFrameReceiver(List<FrameReceiver> physicalLayers, int reorderWindow) throws ProtocolException {
+        super(contextOf(physicalLayers), null);
+        if (reorderWindow < 1) {
+            throw new ProtocolException("a bonded link needs a reorder window of at least one frame.");
+        }
+        this.terminal = new TerminalStream(getContext(), "src.main.resources.BondedFrameReceiver");
+        this.reorderWindow = reorderWindow;
+        this.replayWindow = new ReplayWindow();
+        this.arrivals = new ArrayBlockingQueue<>(reorderWindow + physicalLayers.size());
+        this.openLinks = physicalLayers.size();
+
+        for (FrameReceiver physicalLayer : physicalLayers) {
+            Thread reader = new Thread(() -> readLink(physicalLayer), "bonded-link-" + readers.size());
+            reader.setDaemon(true);
+            readers.add(reader);
+        }
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        terminal.printlnDiag("bonded link ready (links = " + readers.size() + ", reorder window = " + reorderWindow + ")");
+    }
+
+    /**
+     * Return the next frame in sequence number order, or a retransmission of a
+     * frame already returned but not yet reported verified by frameVerified.
+     *
+     * @return the frame including its sequence tag, or null once every link has ended
+     * and every buffered frame has been returned
+     * @throws ProtocolException if a frame without a sequence tag is received
+     */
+    @Override
+    public synchronized String receiveFrame() throws ProtocolException {
+        while (true) {
+            String frame = reorderBuffer.remove(nextSequence);
+
+            if (frame != null)
+                return returned(nextSequence++, frame);
+
+            // Give up on the missing frame once the window is full or no more frames can arrive
+            if (reorderBuffer.size() >= reorderWindow || (openLinks == 0 && !reorderBuffer.isEmpty())) {
+                long resumeAt = reorderBuffer.firstKey();
+                lostCount += resumeAt - nextSequence;
+                terminal.printlnDiag("    frames " + nextSequence + " to " + (resumeAt - 1) + " lost");
+                nextSequence = resumeAt;
+                continue;
+            }
+
+            if (openLinks == 0) {
+                terminal.printlnDiag("    receiveFrame returning null (all links ended)");
+                return null;
+            }
+
+            frame = take();
+            if (frame == END_OF_LINK) {
+                openLinks--;
+                continue;
+            }
+
+            long sequence = sequenceOf(frame);
+            if (sequence < 0) {
+                throw new ProtocolException("No Sequence Tag Found \"" + frame + "\": a bonded frame should be prefixed with its sequence number e.g. \"17:<E-02-Hi-79>\"");
+            }
+            if (!replayWindow.check(sequence))
+                continue;
+            if (reorderBuffer.containsKey(sequence)) {
+                bufferedDuplicateCount++;
+                continue;
+            }
+            if (sequence < nextSequence) {
+                if (unverified.contains(sequence))
+                    return frame;           // retransmission of a returned frame, which may have failed verification
+                lateCount++;
+                terminal.printlnDiag("    frame " + sequence + " arrived after being given up as lost");
+                continue;
+            }
+            reorderBuffer.put(sequence, frame);
+        }
+    }
+
+    /**
+     * Record a frame returned by receiveFrame as verified, so that its
+     * duplicates and retransmissions are dropped from now on.
+     *
+     * @param sequence the sequence number of the verified frame
+     */
+    @Override
+    public synchronized void frameVerified(long sequence) {
+        replayWindow.markSeen(sequence);
+        unverified.remove(sequence);
+    }
+
+    public long getLostCount() {
+        return lostCount;
+    }
+
+    /**
+     * @return copies dropped of frames already verified or waiting in the reorder buffer
+     */
+    public long getDuplicateCount() {
+        return replayWindow.getDuplicateCount() + bufferedDuplicateCount;
+    }
+
+    /**
+     * @return frames dropped because they were too far below the highest verified one to check
+     */
+    public long getOutOfWindowCount() {
+        return replayWindow.getOutOfWindowCount();
+    }
+
+    /**
+     * @return frames dropped because they arrived after being given up as lost
+     */
+    public long getLateCount() {
+        return lateCount;
+    }
+
+    /**
+     * Sequence number a BondedFrameSender tagged a frame with.
+     *
+     * @param frame the received frame
+     * @return the sequence number, or -1 if the frame has no sequence tag
+     */
+    static long sequenceOf(String frame) {
+        // Parsed by hand rather than with a Matcher, this runs for every frame before any other check
+        long sequence = 0;
+        int i = 0;
+
+        for (; i < frame.length() && i <= MAXIMUM_SEQUENCE_DIGITS; i++) {
+            char ch = frame.charAt(i);
+            if (ch < '0' || ch > '9')
+                break;
+            sequence = sequence * 10 + (ch - '0');
+        }
+
+        if (i == 0 || i > MAXIMUM_SEQUENCE_DIGITS || !frame.startsWith(":<", i))
+            return -1;
+        return sequence;
+    }
+
+    private String returned(long sequence, String frame) {
+        // Bounded for consumers that never call frameVerified, the oldest can no longer be retransmitted
+        unverified.add(sequence);
+        if (unverified.size() > reorderWindow)
+            unverified.pollFirst();
+        return frame;
+    }
+
+    private void readLink(FrameReceiver physicalLayer) {
+        try {
+            String frame;
+
+            while ((frame = physicalLayer.receiveFrame()) != null) {
+                arrivals.put(frame);
+            }
+        } catch (ProtocolException e) {
+            terminal.printlnError(Thread.currentThread().getName() + " failed \"" + e.getMessage() + "\"");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            arrivals.put(END_OF_LINK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String take() throws ProtocolException {
+        try {
+            return arrivals.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolException("receiveFrame interrupted.");
+        }
+    }
+
+    private static LinkContext contextOf(List<FrameReceiver> physicalLayers) throws ProtocolException {
+        // The bonded link reports to the link context of its first physical link
+        if (physicalLayers.isEmpty()) {
+            throw new ProtocolException("a bonded link needs at least one physical link.");
+        }
+        return physicalLayers.get(0).getContext();
+    }
+}
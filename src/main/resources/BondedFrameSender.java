@@ -0,0 +1,253 @@
+package src.main.resources;
+
+import src.exceptions.ProtocolException;
+import src.utilities.LinkContext;
+import src.utilities.TerminalStream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Physical layer that stripes frames across several physical links.
+ * Every frame is tagged with a sequence number (e.g. "17:<E-02-Hi-79>") so
+ * that a BondedFrameReceiver can restore the order, then queued on the link
+ * with the shortest backlog.  Each link sends from its own thread, so a slow
+ * link builds up a backlog and automatically gets fewer frames, and the
+ * backlog of a failed link (sendFrame threw an exception) is moved to the
+ * remaining links.  A frame in flight when its link fails may be delivered
+ * twice, the receiver drops such duplicates.  After close every link keeps
+ * working until all the working links have drained their backlogs, so that
+ * a link failing late still has somewhere to move its frames to.
+ */
+
+public class BondedFrameSender extends FrameSender {
+    public static final int DEFAULT_BACKLOG_LIMIT = 64;   // frames queued per link before sendFrame blocks
+
+    private final TerminalStream terminal;
+    private final ArrayList<Link> links = new ArrayList<>();
+    private final int backlogLimit;
+    private long nextSequence = 0;
+    private int nextLink = 0;                              // where the search for the least loaded link starts
+    private boolean closed = false;
+    private int unsentFrames = 0;                          // frames of failed links that no working link could take
+
+    private class Link implements Runnable {
+        private final FrameSender physicalLayer;
+        private final ArrayDeque<String> backlog = new ArrayDeque<>();  // head is the frame in flight
+        private final Thread worker;
+        private boolean failed = false;
+        private boolean stopped = false;                                // worker has finished after every link drained
+
+        private Link(FrameSender physicalLayer, int index) {
+            this.physicalLayer = physicalLayer;
+            this.worker = new Thread(this, "bonded-link-" + index);
+            this.worker.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                String frame;
+
+                try {
+                    synchronized (BondedFrameSender.this) {
+                        while (backlog.isEmpty() && !(closed && drained()))
+                            waitForChange();
+                        if (backlog.isEmpty()) {
+                            stopped = true;
+                            return;
+                        }
+                        frame = backlog.peekFirst();  // stays queued while in flight, so it counts towards the backlog
+                    }
+
+                    physicalLayer.sendFrame(frame);
+                } catch (ProtocolException e) {
+                    linkFailed(this, e);
+                    return;
+                }
+
+                synchronized (BondedFrameSender.this) {
+                    backlog.pollFirst();
+                    BondedFrameSender.this.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param physicalLayers the links to stripe frames across (at least one)
+     * @param backlogLimit   frames queued per link before sendFrame blocks
+     * @throws ProtocolException if error detected
+     */
+    public BondedFrameSender(List<FrameSender> physicalLayers, int backlogLimit) throws ProtocolException {
+        super(contextOf(physicalLayers), null);
+        if (backlogLimit < 1) {
+            throw new ProtocolException("a bonded link needs a backlog of at least one frame.");
+        }
+        this.terminal = new TerminalStream(getContext(), "src.main.resources.BondedFrameSender");
+        this.backlogLimit = backlogLimit;
+
+        for (FrameSender physicalLayer : physicalLayers) {
+            links.add(new Link(physicalLayer, links.size()));
+        }
+        for (Link link : links) {
+            link.worker.start();
+        }
+        terminal.printlnDiag("bonded link ready (links = " + links.size() + ", backlog limit = " + backlogLimit + ")");
+    }
+
+    /**
+     * Tag the frame with the next sequence number and queue it on the least loaded link.
+     * Blocks while every working link has a full backlog.
+     *
+     * @param frame the frame to be sent
+     * @throws ProtocolException if every link has failed, frames could not be sent
+     *                           or the bonded link is closed
+     */
+    @Override
+    public synchronized void sendFrame(String frame) throws ProtocolException {
+        if (closed) {
+            throw new ProtocolException("bonded link is closed.");
+        }
+        checkUnsent();
+        String taggedFrame = nextSequence + ":" + frame;
+
+        while (true) {
+            Link link = leastLoadedLink();
+
+            if (link == null) {
+                throw new ProtocolException("all bonded links have failed.");
+            }
+            if (link.backlog.size() < backlogLimit) {
+                link.backlog.addLast(taggedFrame);
+                nextSequence++;
+                notifyAll();
+                return;
+            }
+            waitForChange();
+        }
+    }
+
+    /**
+     * Wait until every queued frame has been sent, then close every link.
+     *
+     * @throws ProtocolException if a link could not be closed or frames of a
+     *                           failed link could not be moved to another link
+     */
+    @Override
+    public void close() throws ProtocolException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+
+        for (Link link : links) {
+            try {
+                link.worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProtocolException("close interrupted.");
+            }
+        }
+
+        // Failed links are closed as well so their receivers see the end of the stream
+        for (Link link : links) {
+            try {
+                link.physicalLayer.close();
+            } catch (ProtocolException e) {
+                if (!link.failed)
+                    throw e;
+            }
+        }
+
+        synchronized (this) {
+            checkUnsent();
+        }
+    }
+
+    public synchronized int getFailedLinkCount() {
+        int failed = 0;
+
+        for (Link link : links) {
+            if (link.failed)
+                failed++;
+        }
+        return failed;
+    }
+
+    private Link leastLoadedLink() {
+        Link leastLoaded = null;
+
+        // Rotate the starting point so that idle links share the load evenly
+        for (int i = 0; i < links.size(); i++) {
+            Link link = links.get((nextLink + i) % links.size());
+
+            if (!link.failed && !link.stopped && (leastLoaded == null || link.backlog.size() < leastLoaded.backlog.size()))
+                leastLoaded = link;
+        }
+        nextLink = (nextLink + 1) % links.size();
+        return leastLoaded;
+    }
+
+    /**
+     * @return true if no working link has a frame queued or in flight
+     */
+    private boolean drained() {
+        for (Link link : links) {
+            if (!link.failed && !link.backlog.isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    private void checkUnsent() throws ProtocolException {
+        if (unsentFrames > 0) {
+            throw new ProtocolException(unsentFrames + " frame(s) could not be sent, all bonded links have failed.");
+        }
+    }
+
+    private synchronized void linkFailed(Link link, ProtocolException cause) {
+        link.failed = true;
+        int moved = 0;
+
+        // Move the failed link's backlog, including the frame in flight, to the other links
+        // Their backlogs may briefly exceed the limit rather than lose frames
+        // Workers only stop once every working link has drained, so any working link can still take frames
+        for (String frame : link.backlog) {
+            Link other = leastLoadedLink();
+            if (other == null) {
+                unsentFrames++;
+                continue;
+            }
+            other.backlog.addLast(frame);
+            moved++;
+        }
+
+        if (moved == link.backlog.size())
+            terminal.printlnError(link.worker.getName() + " failed \"" + cause.getMessage() + "\", moved " + moved + " frame(s) to the other links");
+        else
+            terminal.printlnError(link.worker.getName() + " failed \"" + cause.getMessage() + "\", moved " + moved + " frame(s) to the other links, "
+                    + (link.backlog.size() - moved) + " frame(s) could not be sent");
+        link.backlog.clear();
+        notifyAll();
+    }
+
+    private void waitForChange() throws ProtocolException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolException("bonded link interrupted.");
+        }
+    }
+
+    private static LinkContext contextOf(List<FrameSender> physicalLayers) throws ProtocolException {
+        // The bonded link reports to the link context of its first physical link
+        if (physicalLayers.isEmpty()) {
+            throw new ProtocolException("a bonded link needs at least one physical link.");
+        }
+        return physicalLayers.get(0).getContext();
+    }
+}
@@ -1,28 +1,63 @@
 package src.main.resources;
 
+import src.utilities.LinkContext;
 import src.utilities.TerminalStream;
 import src.exceptions.ProtocolException;
 
+import java.util.concurrent.BlockingQueue;
+
 
 public class FrameReceiver {
     private final TerminalStream terminal;
+    private final BlockingQueue<String> channel;    // in-memory link (null = terminal)
 
     /**
      * @throws ProtocolException if error detected
      */
     public FrameReceiver() throws ProtocolException {
-        this.terminal = new TerminalStream("src.main.resources.FrameReceiver");
+        this(null);
+    }
+
+    /**
+     * Create a physical layer that receives frames from an in-memory channel
+     * instead of the terminal, see FrameSender(BlockingQueue).
+     *
+     * @param channel the link from the sending physical layer (null = terminal)
+     * @throws ProtocolException if error detected
+     */
+    public FrameReceiver(BlockingQueue<String> channel) throws ProtocolException {
+        this(LinkContext.standard(), channel);
+    }
+
+    /**
+     * @param context configuration and terminal streams of the link
+     * @param channel the link from the sending physical layer (null = terminal)
+     */
+    public FrameReceiver(LinkContext context, BlockingQueue<String> channel) {
+        this.terminal = new TerminalStream(context, "src.main.resources.FrameReceiver");
+        this.channel = channel;
         terminal.printlnDiag("physical layer ready");
     }
 
+    public LinkContext getContext() {
+        return terminal.getContext();
+    }
+
     public String receiveFrame() throws ProtocolException {
-        // Prompt for next frame
-        terminal.printlnDiag("    receiveFrame starting");
-        terminal.printDiag("    enter frame > ");
+        String frame;
+
+        if (channel != null) {
+            terminal.printlnDiag("    receiveFrame starting");
+            frame = take();
+        } else {
+            // Prompt for next frame
+            terminal.printlnDiag("    receiveFrame starting");
+            terminal.printDiag("    enter frame > ");
 
-        // Read frame
-        // (terminal.readLine handles stop string)
-        String frame = terminal.readLine();
+            // Read frame
+            // (terminal.readLine handles stop string)
+            frame = terminal.readLine();
+        }
 
         // Report outcome and return frame
         // End of stream signalled by readLine returning null
@@ -32,4 +67,26 @@ public class FrameReceiver {
             terminal.printlnDiag("    receiveFrame returning \"" + frame + "\"");
         return frame;
     }
+
+    /**
+     * Called by the message layer once a frame with a sequence tag (see
+     * BondedFrameSender) has passed MTU, checksum and length verification.
+     * Must be called from the thread calling receiveFrame.  Optional,
+     * receiveFrame never waits for it.
+     * No action here, see BondedFrameReceiver.
+     *
+     * @param sequence the sequence number of the verified frame
+     */
+    public void frameVerified(long sequence) {
+    }
+
+    private String take() throws ProtocolException {
+        try {
+            String frame = channel.take();
+            return FrameSender.END_OF_STREAM.equals(frame) ? null : frame;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolException("receiveFrame interrupted.");
+        }
+    }
 }
@@ -1,20 +1,50 @@
 package src.main.resources;
 
+import src.utilities.LinkContext;
 import src.utilities.TerminalStream;
 import src.exceptions.ProtocolException;
 
+import java.util.concurrent.BlockingQueue;
+
 
 public class FrameSender {
+    public static final String END_OF_STREAM = "";  // put on a channel by close, never a valid frame
+
     private final TerminalStream terminal;
+    private final BlockingQueue<String> channel;    // in-memory link (null = terminal)
 
     /**
      * @throws ProtocolException if error detected
      */
     public FrameSender() throws ProtocolException {
-        this.terminal = new TerminalStream("src.main.resources.FrameSender");
+        this(null);
+    }
+
+    /**
+     * Create a physical layer that sends frames over an in-memory channel
+     * instead of the terminal, see FrameReceiver(BlockingQueue).
+     *
+     * @param channel the link to the receiving physical layer (null = terminal)
+     * @throws ProtocolException if error detected
+     */
+    public FrameSender(BlockingQueue<String> channel) throws ProtocolException {
+        this(LinkContext.standard(), channel);
+    }
+
+    /**
+     * @param context configuration and terminal streams of the link
+     * @param channel the link to the receiving physical layer (null = terminal)
+     */
+    public FrameSender(LinkContext context, BlockingQueue<String> channel) {
+        this.terminal = new TerminalStream(context, "src.main.resources.FrameSender");
+        this.channel = channel;
         terminal.printlnDiag("physical layer ready");
     }
 
+    public LinkContext getContext() {
+        return terminal.getContext();
+    }
+
     /**
      * Send a single frame.
      * If a message is split across several frames this method must be
@@ -22,10 +52,37 @@ public class FrameSender {
      *
      * @param frame the frame to be sent.  There should be no extraneous
      *              leading or trailing characters
+     * @throws ProtocolException if the frame could not be sent
      */
-    public void sendFrame(String frame) {
+    public void sendFrame(String frame) throws ProtocolException {
+        if (channel != null) {
+            terminal.printlnDiag("    sendFrame called (frame = \"" + frame + "\")");
+            put(frame);
+            return;
+        }
+
         // If debug mode enabled then output full diagnostic message
         // If debug mode disabled then just output raw frame
         terminal.printlnDiagOrRaw("    sendFrame called (frame = \"" + frame + "\")", frame);
     }
+
+    /**
+     * Signal the end of the stream to the receiving physical layer.
+     * No action when sending to the terminal.
+     *
+     * @throws ProtocolException if the end of stream could not be sent
+     */
+    public void close() throws ProtocolException {
+        if (channel != null)
+            put(END_OF_STREAM);
+    }
+
+    private void put(String frame) throws ProtocolException {
+        try {
+            channel.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolException("sendFrame interrupted.");
+        }
+    }
 }
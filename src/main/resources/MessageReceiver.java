@@ -1,9 +1,16 @@
 package src.main.resources;
 
+import src.utilities.LinkContext;
 import src.utilities.TerminalStream;
 import src.exceptions.ProtocolException;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,15 +22,58 @@ public class MessageReceiver {
 
     private static final String FRAME_PATTERN = "(<((E|D)-(\\d\\d)-(.*)-)(\\d\\d)>)";
     private static final Pattern COMPILED_FRAME_PATTERN = Pattern.compile(FRAME_PATTERN, Pattern.DOTALL);
+    private static final String MULTIPLEXED_FRAME_PATTERN = "(<((\\d\\d\\d\\d)-(E|D)-(\\d\\d)-(.*)-)(\\d\\d)>)";
+    private static final Pattern COMPILED_MULTIPLEXED_FRAME_PATTERN = Pattern.compile(MULTIPLEXED_FRAME_PATTERN, Pattern.DOTALL);
+
+    // Demultiplexing state, bounded partial messages and one delivery chain per stream
+    private final ReassemblyStore reassembly;
+    private final ConcurrentHashMap<Integer, CompletableFuture<Void>> deliveries = new ConcurrentHashMap<>();
 
     public MessageReceiver(int mtu) throws ProtocolException {
-        // Create physical layer and terminal stream manager
+        this(mtu, new ReassemblyStore());
+    }
+
+    /**
+     * Create a src.main.resources.MessageReceiver reading from the terminal of the given link.
+     *
+     * @param context configuration and terminal streams of the link
+     * @param mtu     the maximum transfer unit (MTU)
+     * @throws ProtocolException if error detected
+     */
+    public MessageReceiver(LinkContext context, int mtu) throws ProtocolException {
+        this(mtu, new FrameReceiver(context, null), new ReassemblyStore());
+    }
+
+    /**
+     * @param mtu        the maximum transfer unit (MTU)
+     * @param reassembly holds partial messages, its limits bound the memory used by reassembly
+     * @throws ProtocolException if error detected
+     */
+    public MessageReceiver(int mtu, ReassemblyStore reassembly) throws ProtocolException {
+        this(mtu, new FrameReceiver(), reassembly);
+    }
+
+    /**
+     * @param mtu           the maximum transfer unit (MTU)
+     * @param physicalLayer the physical layer frames are received with
+     *                      e.g. an in-memory link or a BondedFrameReceiver,
+     *                      diagnostics go to its link context
+     * @param reassembly    holds partial messages, its limits bound the memory used by reassembly
+     * @throws ProtocolException if error detected
+     */
+    public MessageReceiver(int mtu, FrameReceiver physicalLayer, ReassemblyStore reassembly) throws ProtocolException {
+        // Create terminal stream manager
         this.mtu = mtu;
-        this.physicalLayer = new FrameReceiver();
-        this.terminal = new TerminalStream("src.main.resources.MessageReceiver");
+        this.reassembly = reassembly;
+        this.physicalLayer = physicalLayer;
+        this.terminal = new TerminalStream(physicalLayer.getContext(), "src.main.resources.MessageReceiver");
         terminal.printlnDiag("data link layer ready (mtu = " + mtu + ")");
     }
 
+    public ReassemblyStore getReassemblyStore() {
+        return reassembly;
+    }
+
     public String receiveMessage() throws ProtocolException {
         terminal.printlnDiag("  receiveMessage starting");
 
@@ -32,6 +82,7 @@ public class MessageReceiver {
         String clearedFrame;
         String frameType = "D";
         String noisyFrame;
+        int messageLength = 0;
 
         while (nextFrame(frameType)) {
             noisyFrame = physicalLayer.receiveFrame();
@@ -48,7 +99,13 @@ public class MessageReceiver {
                 Matcher filteredFrameMatcher = COMPILED_FRAME_PATTERN.matcher(clearedFrame);
 
                 constructMessage(filteredFrameMatcher, clearedFrame, messages);
+                frameVerified(noisyFrame);
                 frameType = filteredFrameMatcher.group(3);
+
+                messageLength += filteredFrameMatcher.group(5).length();
+                if (messageLength > reassembly.getMaximumMessageLength()) {
+                    throw new ProtocolException("message length exceeds the maximum of " + reassembly.getMaximumMessageLength() + ".");
+                }
             } else {
                 throw new ProtocolException("No Frame Found \"" + noisyFrame + "\": a frame should match <[E or D]-[data length value (two digits)]-[data (can be empty)]-[checksum value (two digits)]> e.g. \"<E-02-Hi-79>\"");
             }
@@ -64,6 +121,144 @@ public class MessageReceiver {
 
     }
 
+    /**
+     * Demultiplexing receive mode.
+     * Reads multiplexed frames (see MessageSender.sendMessage(int, String))
+     * until the end of the input stream, reassembling each stream in its own
+     * buffer so that frames of different streams may be interleaved.  Partial
+     * messages are bounded by the ReassemblyStore limits, see
+     * ReassemblyStore.setEvictionListener to be told about dropped ones.  Every
+     * completed message is passed to the handler on a separate (virtual, where
+     * the JVM supports them) thread; messages of one stream keep their order.
+     * Returns once the input stream has ended and all messages were handled.
+     *
+     * @param handler receives the reassembled messages
+     * @throws ProtocolException if a frame is malformed or fails verification
+     */
+    public void receiveStreams(StreamHandler handler) throws ProtocolException {
+        terminal.printlnDiag("  receiveStreams starting");
+        ExecutorService executor = newHandlerExecutor();
+        StreamHandler dispatcher = (streamId, message) -> dispatch(streamId, message, handler, executor);
+
+        try {
+            String noisyFrame;
+
+            while ((noisyFrame = physicalLayer.receiveFrame()) != null) {
+                acceptFrame(noisyFrame, dispatcher);
+            }
+        } finally {
+            // Also runs when a frame is rejected, so the next call never starts with stale partial messages
+            try {
+                awaitDeliveries(executor);
+            } finally {
+                int incomplete = reassembly.clear();
+                if (incomplete > 0)
+                    terminal.printlnDiag("  receiveStreams discarding " + incomplete + " incomplete message(s)");
+                deliveries.clear();
+            }
+        }
+
+        terminal.printlnDiag("  receiveStreams returning (end of input stream)");
+    }
+
+    /**
+     * Event driven demultiplexing receive mode, for callers that are handed
+     * frames rather than reading them from the physical layer (e.g. the
+     * src.main.simulation engine).  Processes one multiplexed frame like
+     * receiveStreams does, but calls the handler on the calling thread as
+     * soon as the frame completes a message.
+     *
+     * @param noisyFrame the received frame
+     * @param handler    receives the message if this frame completed one
+     * @throws ProtocolException if the frame is malformed or fails verification
+     */
+    public void acceptFrame(String noisyFrame, StreamHandler handler) throws ProtocolException {
+        demultiplexFrame(noisyFrame, handler);
+    }
+
+    /**
+     * Tell the physical layer that a frame passed verification, so that a
+     * BondedFrameReceiver records its sequence number as seen.  Frames without
+     * a sequence tag are ignored.
+     */
+    private void frameVerified(String noisyFrame) {
+        long sequence = BondedFrameReceiver.sequenceOf(noisyFrame);
+
+        if (sequence >= 0)
+            physicalLayer.frameVerified(sequence);
+    }
+
+    private void demultiplexFrame(String noisyFrame, StreamHandler handler) throws ProtocolException {
+        Matcher frameMatcher = COMPILED_MULTIPLEXED_FRAME_PATTERN.matcher(noisyFrame);
+
+        if (!frameMatcher.find()) {
+            throw new ProtocolException("No Frame Found \"" + noisyFrame + "\": a multiplexed frame should match <[stream ID (four digits)]-[E or D]-[data length value (two digits)]-[data (can be empty)]-[checksum value (two digits)]> e.g. \"<0007-E-02-Hi-23>\"");
+        }
+
+        String frame = frameMatcher.group(1);
+        int streamId = Integer.parseInt(frameMatcher.group(3));
+        String frameType = frameMatcher.group(4);
+        String capturedMessage = frameMatcher.group(6);
+
+        verifyMtuCompliance(frame);
+        verifyFrameChecksum(frameMatcher.group(2), frameMatcher.group(7));
+        verifyMessageLength(capturedMessage, frameMatcher.group(5));
+        frameVerified(noisyFrame);
+
+        String message = reassembly.append(streamId, capturedMessage, !nextFrame(frameType));
+
+        if (message != null) {
+            terminal.printlnDiag("  stream " + streamId + " completed \"" + message + "\"");
+            handler.messageReceived(streamId, message);
+        }
+    }
+
+    private void dispatch(int streamId, String message, StreamHandler handler, ExecutorService executor) {
+        // Chain onto the stream's previous delivery so that messages of one stream are handled in order
+        deliveries.compute(streamId, (id, previous) -> previous == null
+                ? CompletableFuture.runAsync(() -> deliver(handler, id, message), executor)
+                : previous.thenRunAsync(() -> deliver(handler, id, message), executor));
+    }
+
+    private void deliver(StreamHandler handler, int streamId, String message) {
+        try {
+            handler.messageReceived(streamId, message);
+        } catch (RuntimeException e) {
+            terminal.printlnError("stream " + streamId + " handler threw an exception \"" + e.getMessage() + "\"");
+        }
+    }
+
+    private void awaitDeliveries(ExecutorService executor) throws ProtocolException {
+        // Deliveries chained onto a running handler still need the executor, so only shut it down once all have finished
+        try {
+            CompletableFuture.allOf(deliveries.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw new ProtocolException("stream handler delivery failed : " + e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolException("interrupted while waiting for stream handlers.");
+        }
+    }
+
+    private static ExecutorService newHandlerExecutor() {
+        // Virtual threads (Java 21+) are looked up reflectively so the project still builds on older JDKs
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "stream-handler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
     private boolean verifyMtuCompliance(String frame) throws ProtocolException {
         if (frame.length() > this.mtu) {
             throw new ProtocolException("MTU mismatch detected.");
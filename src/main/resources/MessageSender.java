@@ -1,5 +1,6 @@
 package src.main.resources;
 
+import src.utilities.LinkContext;
 import src.utilities.TerminalStream;
 
 import java.util.ArrayList;
@@ -14,6 +15,7 @@ public class MessageSender {
 
     private static final int MAXIMUM_DATA_LENGTH_ALLOWED = 99;
     private static final int FRAME_DELIMITERS_LENGTH = 10;
+    public static final int MAXIMUM_STREAM_ID = 9999;
 
     /**
      * src.main.resources.MessageSender constructor - DO NOT ALTER ANY PART OF THIS
@@ -25,10 +27,34 @@ public class MessageSender {
      */
 
     public MessageSender(int mtu) throws ProtocolException {
-        // Create physical layer and terminal stream manager
+        this(mtu, new FrameSender());
+    }
+
+    /**
+     * Create a src.main.resources.MessageSender sending to the terminal of the given link.
+     *
+     * @param context configuration and terminal streams of the link
+     * @param mtu     the maximum transfer unit (MTU)
+     * @throws ProtocolException if error detected
+     */
+    public MessageSender(LinkContext context, int mtu) throws ProtocolException {
+        this(mtu, new FrameSender(context, null));
+    }
+
+    /**
+     * Create a src.main.resources.MessageSender on top of a given physical layer
+     * e.g. an in-memory link or a BondedFrameSender.
+     * Diagnostics go to the link context of the physical layer.
+     *
+     * @param mtu           the maximum transfer unit (MTU)
+     * @param physicalLayer the physical layer frames are sent with
+     * @throws ProtocolException if error detected
+     */
+    public MessageSender(int mtu, FrameSender physicalLayer) throws ProtocolException {
+        // Create terminal stream manager
         this.mtu = mtu;
-        this.physicalLayer = new FrameSender();
-        this.terminal = new TerminalStream("src.main.resources.MessageSender");
+        this.physicalLayer = physicalLayer;
+        this.terminal = new TerminalStream(physicalLayer.getContext(), "src.main.resources.MessageSender");
         terminal.printlnDiag("data link layer ready (mtu = " + mtu + ")");
     }
 
@@ -44,7 +70,33 @@ public class MessageSender {
     public void sendMessage(String message) throws ProtocolException {
         terminal.printlnDiag("  sendMessage starting (message = \"" + message + "\")");
 
-        ArrayList<String> frames = constructFrames(message);
+        ArrayList<String> frames = constructFrames("", message);
+
+        for (String frame : frames) {
+            physicalLayer.sendFrame(frame);
+        }
+        terminal.printlnDiag("  sendMessage finished");
+    }
+
+    /**
+     * Send a message on a logical stream of a multiplexed link.
+     * Every frame of the message is prefixed with the stream ID so that a
+     * demultiplexing receiver can interleave frames of many messages.
+     * e.g. stream 7 sending "Hi" gives "<0007-E-02-Hi-23>"
+     *
+     * @param streamId the logical stream the message belongs to (0 to 9999)
+     * @param message  the message to be sent (may be empty but not null)
+     * @throws ProtocolException if the stream ID is out of range, the physical
+     *                           layer throws an exception or the message can't be
+     *                           sent without breaking the rules of the protocol
+     */
+    public void sendMessage(int streamId, String message) throws ProtocolException {
+        if (streamId < 0 || streamId > MAXIMUM_STREAM_ID) {
+            throw new ProtocolException("Stream ID Error (\"" + streamId + "\"): stream ID should be between 0 and " + MAXIMUM_STREAM_ID + ".");
+        }
+        terminal.printlnDiag("  sendMessage starting (stream = " + streamId + ", message = \"" + message + "\")");
+
+        ArrayList<String> frames = constructFrames(String.format("%04d-", streamId), message);
 
         for (String frame : frames) {
             physicalLayer.sendFrame(frame);
@@ -73,15 +125,15 @@ public class MessageSender {
         return String.valueOf(checksum);
     }
 
-    private ArrayList<String> splitMessage(String message) throws ProtocolException {
-        if ((this.mtu < FRAME_DELIMITERS_LENGTH) || (this.mtu == FRAME_DELIMITERS_LENGTH && message.length() != 0)) {
-            throw new ProtocolException("MTU Value Error (\"" + this.mtu + "\"): MTU should be greater than 10 if it includes data, otherwise 10 is enough for empty frames.");
+    private ArrayList<String> splitMessage(String message, int frameOverhead) throws ProtocolException {
+        if ((this.mtu < frameOverhead) || (this.mtu == frameOverhead && message.length() != 0)) {
+            throw new ProtocolException("MTU Value Error (\"" + this.mtu + "\"): MTU should be greater than " + frameOverhead + " if it includes data, otherwise " + frameOverhead + " is enough for empty frames.");
         }
 
-        int dataLengthAllowed = mtu - FRAME_DELIMITERS_LENGTH;
+        int dataLengthAllowed = mtu - frameOverhead;
         ArrayList<String> splitMessages = new ArrayList<>();
 
-        if (this.mtu > MAXIMUM_DATA_LENGTH_ALLOWED + FRAME_DELIMITERS_LENGTH) {
+        if (this.mtu > MAXIMUM_DATA_LENGTH_ALLOWED + frameOverhead) {
             dataLengthAllowed = MAXIMUM_DATA_LENGTH_ALLOWED;
         }
 
@@ -91,17 +143,17 @@ public class MessageSender {
         return splitMessages;
     }
 
-    private ArrayList<String> constructFrames(String message) throws ProtocolException {
+    private ArrayList<String> constructFrames(String streamField, String message) throws ProtocolException {
         ArrayList<String> frames;
 
-        frames = splitMessage(message);
+        frames = splitMessage(message, FRAME_DELIMITERS_LENGTH + streamField.length());
         if (frames.size() == 0) frames.add("");
 
         for (int i = 0; i < frames.size(); i++) {
             if (i == frames.size() - 1) {
-                frames.set(i, String.format("%s-%s-%s-", 'E', dataLength(frames.get(i)), frames.get(i)));
+                frames.set(i, String.format("%s%s-%s-%s-", streamField, 'E', dataLength(frames.get(i)), frames.get(i)));
             } else {
-                frames.set(i, String.format("%s-%s-%s-", 'D', dataLength(frames.get(i)), frames.get(i)));
+                frames.set(i, String.format("%s%s-%s-%s-", streamField, 'D', dataLength(frames.get(i)), frames.get(i)));
             }
         }
 
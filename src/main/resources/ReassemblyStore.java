@@ -0,0 +1,283 @@
+package src.main.resources;
+
+import src.exceptions.ProtocolException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Bounded store for the partial messages of a demultiplexing receiver.
+ * A partial message is held until its E frame arrives, but never longer than
+ * the idle timeout after its last frame, never beyond the per-message length
+ * cap and never beyond the global memory budget (least recently used partial
+ * messages are evicted first).  Once a partial message has been evicted or
+ * has grown too long, while its sender is still mid-message, the rest of its
+ * frames are discarded up to and including its E frame, so a truncated
+ * message is never delivered.
+ * All methods are thread safe.
+ */
+
+public class ReassemblyStore {
+
+    public static final long DEFAULT_MEMORY_BUDGET = 1 << 20;                      // characters across all partial messages
+    public static final int DEFAULT_MAXIMUM_MESSAGE_LENGTH = 1 << 16;              // characters in one message
+    public static final long DEFAULT_IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    /**
+     * Why a partial message was dropped.
+     */
+    public enum Reason {
+        EXPIRED,    // no frame within the idle timeout
+        EVICTED,    // least recently used when the memory budget was exceeded
+        OVERSIZED   // longer than the maximum message length
+    }
+
+    /**
+     * Notified whenever a partial message is dropped.
+     * Called while the store is locked so it must not call back into the store.
+     */
+    public interface EvictionListener {
+        void messageEvicted(int streamId, Reason reason, int bufferedLength);
+    }
+
+    private static class PartialMessage {
+        private final ArrayList<String> segments = new ArrayList<>();
+        private int length;
+        private long lastFrameTime;
+    }
+
+    private final long memoryBudget;
+    private final int maximumMessageLength;
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;       // nanoseconds, only differences are used
+
+    // Access ordered, so the eldest entry is always the least recently used partial message
+    private final LinkedHashMap<Integer, PartialMessage> partials = new LinkedHashMap<>(16, 0.75f, true);
+    // Streams whose partial message was evicted or oversized, mapped to the time of their last discarded frame
+    private final HashMap<Integer, Long> discarding = new HashMap<>();
+    private EvictionListener listener = null;
+    private long bufferedLength = 0;
+
+    private long completedCount = 0;
+    private long expiredCount = 0;
+    private long evictedCount = 0;
+    private long oversizedCount = 0;
+    private long discardedFrameCount = 0;
+
+    public ReassemblyStore() throws ProtocolException {
+        this(DEFAULT_MEMORY_BUDGET, DEFAULT_MAXIMUM_MESSAGE_LENGTH, DEFAULT_IDLE_TIMEOUT_NANOS);
+    }
+
+    /**
+     * @param memoryBudget         maximum characters held across all partial messages
+     * @param maximumMessageLength maximum characters in one message
+     * @param idleTimeoutNanos     a partial message without a new frame for this long is dropped
+     * @throws ProtocolException if a limit is not positive or the message cap exceeds the budget
+     */
+    public ReassemblyStore(long memoryBudget, int maximumMessageLength, long idleTimeoutNanos) throws ProtocolException {
+        this(memoryBudget, maximumMessageLength, idleTimeoutNanos, System::nanoTime);
+    }
+
+    /**
+     * @param memoryBudget         maximum characters held across all partial messages
+     * @param maximumMessageLength maximum characters in one message
+     * @param idleTimeoutNanos     a partial message without a new frame for this long is dropped
+     * @param clock                time in nanoseconds the idle timeout is measured in,
+     *                             e.g. virtual time in a simulation
+     * @throws ProtocolException if a limit is not positive or the message cap exceeds the budget
+     */
+    public ReassemblyStore(long memoryBudget, int maximumMessageLength, long idleTimeoutNanos, LongSupplier clock) throws ProtocolException {
+        if (memoryBudget <= 0 || maximumMessageLength <= 0 || idleTimeoutNanos <= 0 || maximumMessageLength > memoryBudget) {
+            throw new ProtocolException("reassembly limits must be positive and the message cap must fit the memory budget.");
+        }
+        this.memoryBudget = memoryBudget;
+        this.maximumMessageLength = maximumMessageLength;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.clock = clock;
+    }
+
+    public synchronized void setEvictionListener(EvictionListener listener) {
+        this.listener = listener;
+    }
+
+    public int getMaximumMessageLength() {
+        return maximumMessageLength;
+    }
+
+    /**
+     * Add a verified segment to the partial message of a stream.
+     *
+     * @param streamId the stream the segment belongs to
+     * @param segment  the data carried by the frame
+     * @param last     true if this was the E frame of the message
+     * @return the complete message if last is true and the message was kept,
+     * otherwise null
+     */
+    public synchronized String append(int streamId, String segment, boolean last) {
+        long now = clock.getAsLong();
+        evictExpired(now);
+
+        Long discardedAt = discarding.get(streamId);
+        if (discardedAt != null) {
+            // Frames of a dropped message are discarded until its E frame, unless the stream
+            // stayed quiet long enough for this frame to be the start of a new message
+            if (now - discardedAt < idleTimeoutNanos) {
+                discardedFrameCount++;
+                if (last)
+                    discarding.remove(streamId);
+                else
+                    discarding.put(streamId, now);
+                return null;
+            }
+            discarding.remove(streamId);
+        }
+
+        PartialMessage partial = partials.get(streamId);
+        int partialLength = partial == null ? 0 : partial.length;
+
+        if (partialLength + segment.length() > maximumMessageLength) {
+            discardedFrameCount++;
+            drop(streamId, Reason.OVERSIZED, now);
+            if (last)
+                discarding.remove(streamId);
+            return null;
+        }
+
+        if (last) {
+            String message = concatenate(partial, segment);
+            if (partial != null) {
+                partials.remove(streamId);
+                bufferedLength -= partial.length;
+            }
+            completedCount++;
+            return message;
+        }
+
+        // Make room by evicting the least recently used partial messages
+        // The get above moved this stream to the tail and the message cap fits the budget,
+        // so only other streams are ever evicted here
+        while (bufferedLength + segment.length() > memoryBudget) {
+            drop(partials.keySet().iterator().next(), Reason.EVICTED, now);
+        }
+
+        if (partial == null) {
+            partial = new PartialMessage();
+            partials.put(streamId, partial);
+        }
+        partial.segments.add(segment);
+        partial.length += segment.length();
+        partial.lastFrameTime = now;
+        bufferedLength += segment.length();
+        return null;
+    }
+
+    /**
+     * Drop every partial message that has been idle for longer than the idle timeout.
+     * Also called on every append, so only needs calling when frames stop arriving.
+     *
+     * @return number of partial messages dropped
+     */
+    public synchronized int evictExpired() {
+        long now = clock.getAsLong();
+
+        // Stale markers are ignored on lookup anyway, this only reclaims their memory
+        discarding.values().removeIf(discardedAt -> now - discardedAt >= idleTimeoutNanos);
+        return evictExpired(now);
+    }
+
+    /**
+     * Drop all partial messages, e.g. at the end of the input stream.
+     *
+     * @return number of partial messages dropped
+     */
+    public synchronized int clear() {
+        int dropped = partials.size();
+        partials.clear();
+        discarding.clear();
+        bufferedLength = 0;
+        return dropped;
+    }
+
+    public synchronized int getPartialCount() {
+        return partials.size();
+    }
+
+    public synchronized long getBufferedLength() {
+        return bufferedLength;
+    }
+
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    public synchronized long getExpiredCount() {
+        return expiredCount;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public synchronized long getOversizedCount() {
+        return oversizedCount;
+    }
+
+    public synchronized long getDiscardedFrameCount() {
+        return discardedFrameCount;
+    }
+
+    private int evictExpired(long now) {
+        int dropped = 0;
+
+        // Idle partial messages are also the least recently used, so they are all at the head
+        Iterator<Map.Entry<Integer, PartialMessage>> entries = partials.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, PartialMessage> entry = entries.next();
+            if (now - entry.getValue().lastFrameTime < idleTimeoutNanos)
+                break;
+
+            entries.remove();
+            bufferedLength -= entry.getValue().length;
+            expiredCount++;
+            dropped++;
+            // No discard mode: the sender went quiet, so its next frame most likely starts a new message
+            notifyListener(entry.getKey(), Reason.EXPIRED, entry.getValue().length);
+        }
+
+        return dropped;
+    }
+
+    private void drop(int streamId, Reason reason, long now) {
+        PartialMessage partial = partials.remove(streamId);
+        int length = partial == null ? 0 : partial.length;
+
+        bufferedLength -= length;
+        if (reason == Reason.OVERSIZED)
+            oversizedCount++;
+        else
+            evictedCount++;
+        discarding.put(streamId, now);
+        notifyListener(streamId, reason, length);
+    }
+
+    private void notifyListener(int streamId, Reason reason, int length) {
+        if (listener != null)
+            listener.messageEvicted(streamId, reason, length);
+    }
+
+    private String concatenate(PartialMessage partial, String lastSegment) {
+        if (partial == null) return lastSegment;
+        StringBuilder fullMessage = new StringBuilder(partial.length + lastSegment.length());
+
+        for (String segment : partial.segments) {
+            fullMessage.append(segment);
+        }
+        return fullMessage.append(lastSegment).toString();
+    }
+}
@@ -0,0 +1,108 @@
+package src.main.resources;
+
+import src.exceptions.ProtocolException;
+
+
+/**
+ * Sliding bitmap window over the sequence numbers received on one link, used
+ * to drop duplicate frames in the manner of IPsec anti-replay (RFC 6479).
+ * The bitmap is a ring of 64 bit words, so checking a sequence number takes
+ * constant time and memory and allocates nothing.  Sequence numbers more than
+ * the window size below the highest one seen can no longer be checked and are
+ * rejected as out of window.
+ * As in RFC 4303 section 3.4.3, checking and recording are separate steps: a
+ * frame is checked before it is parsed but only recorded once it has passed
+ * verification, so a corrupted copy never blocks a clean retransmission.
+ * Not thread safe, each receiving link owns its window.
+ */
+
+public class ReplayWindow {
+    public static final int DEFAULT_WINDOW_SIZE = 1024;   // sequence numbers tracked below the highest seen
+
+    private final long[] bitmap;
+    private final int wordMask;         // word count is a power of two, so index = word number & wordMask
+    private final int windowSize;
+    private long highestSequence = -1;  // -1 = nothing received yet
+
+    // Only written by the owning link, volatile so they can be read from other threads
+    private volatile long duplicateCount = 0;
+    private volatile long outOfWindowCount = 0;
+
+    public ReplayWindow() throws ProtocolException {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize sequence numbers tracked below the highest seen,
+     *                   a power of two of at least 64
+     * @throws ProtocolException if the window size is invalid
+     */
+    public ReplayWindow(int windowSize) throws ProtocolException {
+        if (windowSize < 64 || Integer.bitCount(windowSize) != 1) {
+            throw new ProtocolException("replay window size should be a power of two of at least 64.");
+        }
+        // Twice the words the window spans, so the window never shares a word with bits being cleared
+        this.bitmap = new long[windowSize / 32];
+        this.wordMask = bitmap.length - 1;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Check a received sequence number without recording it.
+     * Duplicates and sequence numbers too old to tell are counted.
+     *
+     * @param sequence the sequence number of the received frame (not negative)
+     * @return true if the sequence number has not been recorded yet, false if it is
+     * a duplicate or too old to tell
+     */
+    public boolean check(long sequence) {
+        if (sequence > highestSequence)
+            return true;
+
+        if (highestSequence - sequence >= windowSize) {
+            outOfWindowCount++;
+            return false;
+        }
+
+        if ((bitmap[(int) (sequence >>> 6) & wordMask] & (1L << (sequence & 63))) != 0) {
+            duplicateCount++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Record a sequence number once its frame has passed verification,
+     * sliding the window forward if it is the highest seen.
+     *
+     * @param sequence the sequence number of the verified frame (not negative)
+     */
+    public void markSeen(long sequence) {
+        if (sequence > highestSequence)
+            slideTo(sequence);
+        else if (highestSequence - sequence >= windowSize)
+            return;
+
+        bitmap[(int) (sequence >>> 6) & wordMask] |= 1L << (sequence & 63);
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    public long getOutOfWindowCount() {
+        return outOfWindowCount;
+    }
+
+    private void slideTo(long sequence) {
+        // Clear the words that the window slides over, at most the whole ring
+        long currentWord = highestSequence < 0 ? -1 : highestSequence >>> 6;
+        long newWord = sequence >>> 6;
+        long clear = Math.min(newWord - currentWord, bitmap.length);
+
+        for (long i = 1; i <= clear; i++) {
+            bitmap[(int) (currentWord + i) & wordMask] = 0;
+        }
+        highestSequence = sequence;
+    }
+}
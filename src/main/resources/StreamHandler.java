@@ -0,0 +1,19 @@
+package src.main.resources;
+
+/**
+ * Receives the messages reassembled by a demultiplexing
+ * src.main.resources.MessageReceiver.  Messages of the same stream are
+ * delivered one at a time and in the order they were completed, messages
+ * of different streams may be delivered concurrently.
+ */
+
+public interface StreamHandler {
+
+    /**
+     * Called once for every complete message received on a stream.
+     *
+     * @param streamId the logical stream the message was sent on
+     * @param message  the reassembled message (never null)
+     */
+    void messageReceived(int streamId, String message);
+}
@@ -0,0 +1,47 @@
+package src.main.simulation;
+
+import src.exceptions.ProtocolException;
+
+
+/**
+ * Something that happens at a node at a point in virtual time.
+ * Events are ordered by time, then by the node that scheduled them, then by
+ * the order that node scheduled them in, so a simulation gives the same
+ * result however its nodes are partitioned across threads.
+ */
+
+class Event implements Comparable<Event> {
+
+    interface Action {
+        void fire() throws ProtocolException;
+    }
+
+    private final long time;        // virtual time in nanoseconds
+    private final int origin;       // node that scheduled the event
+    private final long sequence;    // per origin node, breaks ties between events at the same time
+    private final Action action;
+
+    Event(long time, int origin, long sequence, Action action) {
+        this.time = time;
+        this.origin = origin;
+        this.sequence = sequence;
+        this.action = action;
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    void fire() throws ProtocolException {
+        action.fire();
+    }
+
+    @Override
+    public int compareTo(Event other) {
+        if (time != other.time)
+            return Long.compare(time, other.time);
+        if (origin != other.origin)
+            return Integer.compare(origin, other.origin);
+        return Long.compare(sequence, other.sequence);
+    }
+}
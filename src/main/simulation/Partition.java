@@ -0,0 +1,88 @@
+package src.main.simulation;
+
+import src.exceptions.ProtocolException;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * A group of nodes whose events are processed by one thread.
+ * Events scheduled by nodes of other partitions are collected in an inbox
+ * and only merged into the event queue between time windows, so the event
+ * queue and the partition's nodes are only ever touched by its own thread.
+ */
+
+class Partition {
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final ConcurrentLinkedQueue<Event> inbox = new ConcurrentLinkedQueue<>();
+    private long now = 0;                   // virtual time of the event being processed
+
+    // Statistics, read once all threads have stopped
+    long eventCount = 0;
+    long messagesSent = 0;
+    long messagesDelivered = 0;
+    long charactersDelivered = 0;
+    long framesDelivered = 0;
+    long latencyTotalNanos = 0;
+    long latencyMaximumNanos = 0;
+
+    long getNow() {
+        return now;
+    }
+
+    /**
+     * Schedule an event from a node of this partition.
+     */
+    void schedule(Event event) {
+        events.add(event);
+    }
+
+    /**
+     * Schedule an event from a node of another partition, safe from any thread.
+     */
+    void post(Event event) {
+        inbox.add(event);
+    }
+
+    /**
+     * Move posted events into the event queue, called between time windows.
+     */
+    void mergeInbox() {
+        Event event;
+
+        while ((event = inbox.poll()) != null) {
+            events.add(event);
+        }
+    }
+
+    /**
+     * @return time of the next event or Long.MAX_VALUE if there is none
+     */
+    long nextEventTime() {
+        Event next = events.peek();
+        return next == null ? Long.MAX_VALUE : next.getTime();
+    }
+
+    /**
+     * Fire every event before the end of the window, in order.
+     *
+     * @param windowEnd events at or after this time are left for a later window
+     * @throws ProtocolException if an event fails
+     */
+    void runUntil(long windowEnd) throws ProtocolException {
+        while (!events.isEmpty() && events.peek().getTime() < windowEnd) {
+            Event event = events.poll();
+            now = event.getTime();
+            eventCount++;
+            event.fire();
+        }
+    }
+
+    void recordDelivery(long latencyNanos, int length) {
+        messagesDelivered++;
+        charactersDelivered += length;
+        latencyTotalNanos += latencyNanos;
+        latencyMaximumNanos = Math.max(latencyMaximumNanos, latencyNanos);
+    }
+}
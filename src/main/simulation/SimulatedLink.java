@@ -0,0 +1,45 @@
+package src.main.simulation;
+
+import src.exceptions.ProtocolException;
+import src.main.resources.FrameSender;
+import src.utilities.LinkContext;
+
+
+/**
+ * Physical layer of a simulated one-way link.  Instead of sending a frame,
+ * sendFrame schedules its arrival at the destination node: frames queue
+ * behind each other for the link's serialization delay, then take the
+ * link's propagation delay to arrive.
+ */
+
+class SimulatedLink extends FrameSender {
+    private final SimulatedNode source;
+    private final SimulatedNode destination;
+    private final long latencyNanos;
+    private final long nanosPerCharacter;
+    private long busyUntil = 0;             // virtual time the last queued frame finishes being sent
+
+    SimulatedLink(LinkContext context, SimulatedNode source, SimulatedNode destination, Topology.Link link) {
+        super(context, null);
+        this.source = source;
+        this.destination = destination;
+        this.latencyNanos = link.getLatencyNanos();
+        this.nanosPerCharacter = link.getNanosPerCharacter();
+    }
+
+    @Override
+    public void sendFrame(String frame) {
+        long departure = Math.max(source.getPartition().getNow(), busyUntil) + frame.length() * nanosPerCharacter;
+        busyUntil = departure;
+        source.schedule(departure + latencyNanos, destination, () -> destination.frameArrived(frame));
+    }
+
+    @Override
+    public void close() {
+        // Nothing to signal, the simulation ends when no events are left
+    }
+
+    SimulatedNode getDestination() {
+        return destination;
+    }
+}
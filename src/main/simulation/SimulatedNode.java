@@ -0,0 +1,118 @@
+package src.main.simulation;
+
+import src.exceptions.ProtocolException;
+import src.main.resources.FrameReceiver;
+import src.main.resources.MessageReceiver;
+import src.main.resources.MessageSender;
+import src.main.resources.ReassemblyStore;
+import src.main.resources.StreamHandler;
+import src.utilities.LinkContext;
+
+import java.util.ArrayList;
+
+
+/**
+ * A simulated node: a src.main.resources.MessageSender for each outgoing
+ * link and one demultiplexing src.main.resources.MessageReceiver for all
+ * incoming links, each incoming link being a stream of its own.  Messages
+ * start with their virtual send time so the receiver can measure latency.
+ */
+
+class SimulatedNode implements StreamHandler {
+    private final int id;
+    private final Partition partition;
+    private final int mtu;
+    private final MessageReceiver receiver;
+    private final ArrayList<MessageSender> senders = new ArrayList<>();
+    private final ArrayList<Integer> senderStreams = new ArrayList<>();  // stream ID of each sender at its destination
+    private int incomingLinks = 0;
+    private int nextSender = 0;             // outgoing links take turns
+    private long nextSequence = 0;          // of the events this node schedules
+
+    SimulatedNode(int id, Partition partition, LinkContext context, int mtu) throws ProtocolException {
+        this.id = id;
+        this.partition = partition;
+        this.mtu = mtu;
+        // Frames are pushed with acceptFrame, the receiver's own physical layer is never read
+        // Idle partial messages expire in virtual time, so results don't depend on the speed of the host
+        ReassemblyStore reassembly = new ReassemblyStore(ReassemblyStore.DEFAULT_MEMORY_BUDGET, ReassemblyStore.DEFAULT_MAXIMUM_MESSAGE_LENGTH,
+                ReassemblyStore.DEFAULT_IDLE_TIMEOUT_NANOS, partition::getNow);
+        this.receiver = new MessageReceiver(mtu, new FrameReceiver(context, null), reassembly);
+    }
+
+    Partition getPartition() {
+        return partition;
+    }
+
+    /**
+     * @return the stream ID the new incoming link uses at this node
+     * @throws ProtocolException if the node has run out of stream IDs
+     */
+    int addIncomingLink() throws ProtocolException {
+        if (incomingLinks > MessageSender.MAXIMUM_STREAM_ID) {
+            throw new ProtocolException("node " + id + " has more incoming links than stream IDs.");
+        }
+        return incomingLinks++;
+    }
+
+    void addOutgoingLink(SimulatedLink link) throws ProtocolException {
+        senders.add(new MessageSender(mtu, link));
+        senderStreams.add(link.getDestination().addIncomingLink());
+    }
+
+    /**
+     * Schedule an event at a node of this or another partition.
+     */
+    void schedule(long time, SimulatedNode target, Event.Action action) {
+        Event event = new Event(time, id, nextSequence++, action);
+
+        if (target.partition == partition)
+            partition.schedule(event);
+        else
+            target.partition.post(event);
+    }
+
+    /**
+     * Start sending a message every interval, in turn on each outgoing link.
+     *
+     * @param start         virtual time of the first message
+     * @param intervalNanos virtual time between messages
+     * @param messageLength characters in each message
+     * @param until         no message is started at or after this time
+     */
+    void startTraffic(long start, long intervalNanos, int messageLength, long until) {
+        if (!senders.isEmpty() && start < until)
+            schedule(start, this, () -> sendNext(intervalNanos, messageLength, until));
+    }
+
+    void frameArrived(String frame) throws ProtocolException {
+        partition.framesDelivered++;
+        receiver.acceptFrame(frame, this);
+    }
+
+    @Override
+    public void messageReceived(int streamId, String message) {
+        long sentAt = Long.parseLong(message.substring(0, message.indexOf(':')));
+        partition.recordDelivery(partition.getNow() - sentAt, message.length());
+    }
+
+    private void sendNext(long intervalNanos, int messageLength, long until) throws ProtocolException {
+        int next = nextSender;
+        nextSender = (nextSender + 1) % senders.size();
+
+        senders.get(next).sendMessage(senderStreams.get(next), message(partition.getNow(), messageLength));
+        partition.messagesSent++;
+
+        long nextTime = partition.getNow() + intervalNanos;
+        if (nextTime < until)
+            schedule(nextTime, this, () -> sendNext(intervalNanos, messageLength, until));
+    }
+
+    private static String message(long sentAt, int length) {
+        StringBuilder message = new StringBuilder(Math.max(length, 20)).append(sentAt).append(':');
+
+        while (message.length() < length)
+            message.append('x');
+        return message.toString();
+    }
+}
@@ -0,0 +1,248 @@
+package src.main.simulation;
+
+import src.exceptions.ProtocolException;
+import src.utilities.LinkContext;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Discrete-event simulation of many data link nodes in one process.
+ * Every node of the topology runs the real src.main.resources.MessageSender
+ * and src.main.resources.MessageReceiver; frames travel over simulated links
+ * in virtual time, so thousands of nodes can be simulated far faster than
+ * real time.
+ * The nodes may be split into partitions that run on separate threads.
+ * Partitions advance together in time windows as long as the shortest
+ * latency of a link between two partitions (the lookahead), so an event can
+ * never arrive at another partition inside the window it was scheduled in.
+ * Results do not depend on the number of partitions.
+ */
+
+public class Simulator {
+    private final LinkContext context;
+    private final ArrayList<Partition> partitions = new ArrayList<>();
+    private final ArrayList<SimulatedNode> nodes = new ArrayList<>();
+    private final long lookaheadNanos;      // Long.MAX_VALUE = no links between partitions
+    private boolean ran = false;
+
+    /**
+     * @param topology       the nodes and links to simulate
+     * @param mtu            the maximum transfer unit (MTU) of every link
+     * @param partitionCount threads to spread the nodes across (at least one)
+     * @throws ProtocolException if the simulation can't be built
+     */
+    public Simulator(Topology topology, int mtu, int partitionCount) throws ProtocolException {
+        if (partitionCount < 1 || partitionCount > topology.getNodeCount()) {
+            throw new ProtocolException("partition count should be between 1 and the node count.");
+        }
+
+        // Nodes report errors only, thousands of nodes would flood the terminal otherwise
+        this.context = new LinkContext(new BufferedReader(new StringReader("")), System.out);
+        context.setDebug(false);
+
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new Partition());
+        }
+
+        // Contiguous blocks of nodes, so topologies with mostly local links cross few partitions
+        for (int id = 0; id < topology.getNodeCount(); id++) {
+            Partition partition = partitions.get((int) ((long) id * partitionCount / topology.getNodeCount()));
+            nodes.add(new SimulatedNode(id, partition, context, mtu));
+        }
+
+        long lookahead = Long.MAX_VALUE;
+
+        for (Topology.Link link : topology.getLinks()) {
+            SimulatedNode source = nodes.get(link.getSource());
+            SimulatedNode destination = nodes.get(link.getDestination());
+            source.addOutgoingLink(new SimulatedLink(context, source, destination, link));
+
+            if (source.getPartition() != destination.getPartition())
+                lookahead = Math.min(lookahead, link.getLatencyNanos());
+        }
+
+        if (lookahead == 0) {
+            throw new ProtocolException("links between partitions need a latency greater than zero.");
+        }
+        this.lookaheadNanos = lookahead;
+    }
+
+    /**
+     * Run the simulation until every message sent has been delivered.
+     * Every node sends a message every interval, in turn on each of its
+     * outgoing links, starting at a random time within the first interval.
+     *
+     * @param durationNanos        virtual time during which messages are started
+     * @param messageIntervalNanos virtual time between the messages of one node
+     * @param messageLength        characters in each message (the send time takes up to 20)
+     * @throws ProtocolException if a frame fails or the simulator has already run
+     */
+    public void run(long durationNanos, long messageIntervalNanos, int messageLength) throws ProtocolException {
+        if (ran) {
+            throw new ProtocolException("a simulator can only run once.");
+        }
+        if (durationNanos < 0 || messageIntervalNanos <= 0) {
+            throw new ProtocolException("duration should not be negative and message interval should be positive.");
+        }
+        ran = true;
+
+        Random random = new Random(0);
+        for (SimulatedNode node : nodes) {
+            node.startTraffic((long) (random.nextDouble() * messageIntervalNanos), messageIntervalNanos, messageLength, durationNanos);
+        }
+
+        ExecutorService threads = partitions.size() > 1 ? Executors.newFixedThreadPool(partitions.size(), runnable -> {
+            Thread thread = new Thread(runnable, "simulation-partition");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
+        try {
+            while (true) {
+                long windowStart = Long.MAX_VALUE;
+
+                for (Partition partition : partitions) {
+                    partition.mergeInbox();
+                    windowStart = Math.min(windowStart, partition.nextEventTime());
+                }
+                if (windowStart == Long.MAX_VALUE)
+                    break;
+
+                long windowEnd = windowStart > Long.MAX_VALUE - lookaheadNanos ? Long.MAX_VALUE : windowStart + lookaheadNanos;
+
+                if (threads == null)
+                    partitions.get(0).runUntil(windowEnd);
+                else
+                    runWindow(threads, windowEnd);
+            }
+        } finally {
+            if (threads != null)
+                threads.shutdownNow();
+        }
+    }
+
+    private void runWindow(ExecutorService threads, long windowEnd) throws ProtocolException {
+        List<Callable<Void>> tasks = new ArrayList<>(partitions.size());
+
+        for (Partition partition : partitions) {
+            tasks.add(() -> {
+                partition.runUntil(windowEnd);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> result : threads.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ProtocolException)
+                throw (ProtocolException) e.getCause();
+            throw new ProtocolException("simulation failed : " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolException("simulation interrupted.");
+        }
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    /**
+     * @return shortest latency between partitions, Long.MAX_VALUE if there is no such link
+     */
+    public long getLookaheadNanos() {
+        return lookaheadNanos;
+    }
+
+    /**
+     * @return virtual time of the last event
+     */
+    public long getVirtualTimeNanos() {
+        long time = 0;
+
+        for (Partition partition : partitions) {
+            time = Math.max(time, partition.getNow());
+        }
+        return time;
+    }
+
+    public long getEventCount() {
+        long count = 0;
+
+        for (Partition partition : partitions) {
+            count += partition.eventCount;
+        }
+        return count;
+    }
+
+    public long getMessagesSent() {
+        long count = 0;
+
+        for (Partition partition : partitions) {
+            count += partition.messagesSent;
+        }
+        return count;
+    }
+
+    public long getMessagesDelivered() {
+        long count = 0;
+
+        for (Partition partition : partitions) {
+            count += partition.messagesDelivered;
+        }
+        return count;
+    }
+
+    public long getCharactersDelivered() {
+        long count = 0;
+
+        for (Partition partition : partitions) {
+            count += partition.charactersDelivered;
+        }
+        return count;
+    }
+
+    public long getFramesDelivered() {
+        long count = 0;
+
+        for (Partition partition : partitions) {
+            count += partition.framesDelivered;
+        }
+        return count;
+    }
+
+    public long getAverageLatencyNanos() {
+        long total = 0;
+
+        for (Partition partition : partitions) {
+            total += partition.latencyTotalNanos;
+        }
+        long delivered = getMessagesDelivered();
+        return delivered == 0 ? 0 : total / delivered;
+    }
+
+    public long getMaximumLatencyNanos() {
+        long maximum = 0;
+
+        for (Partition partition : partitions) {
+            maximum = Math.max(maximum, partition.latencyMaximumNanos);
+        }
+        return maximum;
+    }
+}
@@ -0,0 +1,152 @@
+package src.main.simulation;
+
+import src.exceptions.ProtocolException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Nodes and the one-way links between them for a src.main.simulation.Simulator.
+ * Nodes are numbered from 0.  Every link has a propagation latency and a
+ * bandwidth, frames on one link are serialized one after the other.
+ */
+
+public class Topology {
+
+    /**
+     * One-way link between two nodes.
+     */
+    public static class Link {
+        private final int source;
+        private final int destination;
+        private final long latencyNanos;          // propagation delay of every frame
+        private final long nanosPerCharacter;     // serialization delay, from the bandwidth
+
+        private Link(int source, int destination, long latencyNanos, long nanosPerCharacter) {
+            this.source = source;
+            this.destination = destination;
+            this.latencyNanos = latencyNanos;
+            this.nanosPerCharacter = nanosPerCharacter;
+        }
+
+        public int getSource() {
+            return source;
+        }
+
+        public int getDestination() {
+            return destination;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        public long getNanosPerCharacter() {
+            return nanosPerCharacter;
+        }
+    }
+
+    private final int nodeCount;
+    private final ArrayList<Link> links = new ArrayList<>();
+
+    /**
+     * @param nodeCount number of nodes (at least one)
+     * @throws ProtocolException if the node count is invalid
+     */
+    public Topology(int nodeCount) throws ProtocolException {
+        if (nodeCount < 1) {
+            throw new ProtocolException("a topology needs at least one node.");
+        }
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Nodes joined in a ring, each with a link in both directions to both neighbours.
+     *
+     * @param nodeCount           number of nodes (at least two)
+     * @param latencyNanos        propagation delay of every link
+     * @param charactersPerSecond bandwidth of every link
+     * @return the topology
+     * @throws ProtocolException if a value is invalid
+     */
+    public static Topology ring(int nodeCount, long latencyNanos, long charactersPerSecond) throws ProtocolException {
+        Topology topology = new Topology(nodeCount);
+
+        for (int node = 0; node < nodeCount; node++) {
+            int next = (node + 1) % nodeCount;
+            if (next == node || (nodeCount == 2 && node == 1))
+                continue;
+            topology.addDuplexLink(node, next, latencyNanos, charactersPerSecond);
+        }
+        return topology;
+    }
+
+    /**
+     * Nodes joined at random, each node gets duplex links to about degree
+     * other nodes.  The same seed always gives the same topology.
+     *
+     * @param nodeCount           number of nodes (more than the degree)
+     * @param degree              duplex links started by each node
+     * @param latencyNanos        propagation delay of every link
+     * @param charactersPerSecond bandwidth of every link
+     * @param seed                seed of the random choice of neighbours
+     * @return the topology
+     * @throws ProtocolException if a value is invalid
+     */
+    public static Topology random(int nodeCount, int degree, long latencyNanos, long charactersPerSecond, long seed) throws ProtocolException {
+        if (degree < 1 || degree >= nodeCount) {
+            throw new ProtocolException("degree should be between 1 and the node count - 1.");
+        }
+        Topology topology = new Topology(nodeCount);
+        Random random = new Random(seed);
+
+        // Half the links to each side keep the expected degree of every node at about the requested one
+        for (int node = 0; node < nodeCount; node++) {
+            for (int i = 0; i < (degree + 1) / 2; i++) {
+                int neighbour = (node + 1 + random.nextInt(nodeCount - 1)) % nodeCount;
+                topology.addDuplexLink(node, neighbour, latencyNanos, charactersPerSecond);
+            }
+        }
+        return topology;
+    }
+
+    /**
+     * Add a one-way link.
+     *
+     * @param source              sending node
+     * @param destination         receiving node
+     * @param latencyNanos        propagation delay of every frame (not negative)
+     * @param charactersPerSecond bandwidth (positive)
+     * @throws ProtocolException if a value is invalid
+     */
+    public void addLink(int source, int destination, long latencyNanos, long charactersPerSecond) throws ProtocolException {
+        if (source < 0 || source >= nodeCount || destination < 0 || destination >= nodeCount || source == destination) {
+            throw new ProtocolException("Link Error (" + source + " -> " + destination + "): nodes should be different and between 0 and " + (nodeCount - 1) + ".");
+        }
+        if (latencyNanos < 0 || charactersPerSecond <= 0) {
+            throw new ProtocolException("Link Error (" + source + " -> " + destination + "): latency should not be negative and bandwidth should be positive.");
+        }
+        links.add(new Link(source, destination, latencyNanos, Math.max(1, 1_000_000_000L / charactersPerSecond)));
+    }
+
+    /**
+     * Add a link in each direction.
+     *
+     * @see #addLink(int, int, long, long)
+     */
+    public void addDuplexLink(int node, int otherNode, long latencyNanos, long charactersPerSecond) throws ProtocolException {
+        addLink(node, otherNode, latencyNanos, charactersPerSecond);
+        addLink(otherNode, node, latencyNanos, charactersPerSecond);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public List<Link> getLinks() {
+        return Collections.unmodifiableList(links);
+    }
+}
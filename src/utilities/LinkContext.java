@@ -0,0 +1,122 @@
+package src.utilities;
+
+import src.exceptions.ProtocolException;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+
+/**
+ * Configuration and I/O of one sender/receiver link.  Every
+ * src.utilities.TerminalStream belongs to a context, so independent
+ * links can run side by side in one process each with their own debug
+ * mode, stop string and streams.  Safe to use from many threads: the
+ * settings may be changed at any time, each diagnostic line is written
+ * in one piece and each readLine returns one whole line.
+ */
+
+public class LinkContext {
+    private static BufferedReader standardInput = null;  // System.in wrapped once, so contexts never steal each other's buffered input
+    private static LinkContext standard = null;          // see method standard
+
+    private volatile boolean debug = true;               // on by default, see method setDebug
+    private volatile int classWidth = 0;                 // class name field width (0 = no padding)
+    private volatile String separator = " : ";           // between class field and message ("" = none)
+    private volatile String stop = null;                 // user enters this to signal end
+    private final BufferedReader input;                  // input stream of this link
+    private final PrintStream output;                    // output stream of this link
+
+    /**
+     * Create a context on the standard input and output streams.
+     *
+     * @throws ProtocolException in the event of an error
+     */
+    public LinkContext() throws ProtocolException {
+        this(standardInput(), System.out);
+    }
+
+    /**
+     * Create a context on the given streams, e.g. to run a link without a terminal.
+     *
+     * @param input  input stream of this link
+     * @param output output stream of this link
+     */
+    public LinkContext(BufferedReader input, PrintStream output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    /**
+     * The context used by classes created without one.
+     * Shared by all of them, so only for a single link on the terminal.
+     *
+     * @return the shared standard context
+     * @throws ProtocolException in the event of an error
+     */
+    public static synchronized LinkContext standard() throws ProtocolException {
+        if (standard == null)
+            standard = new LinkContext();
+        return standard;
+    }
+
+    private static synchronized BufferedReader standardInput() throws ProtocolException {
+        if (standardInput == null) {
+            try {
+                standardInput = new BufferedReader(new InputStreamReader(System.in));
+            } catch (Exception e) {
+                throw new ProtocolException("input stream constructor failed : " + e.getMessage());
+            }
+        }
+        return standardInput;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    public int getClassWidth() {
+        return classWidth;
+    }
+
+    /**
+     * Set field width for class name.
+     *
+     * @param classWidth width (0 = don't pad the field)
+     */
+    public void setClassWidth(int classWidth) {
+        this.classWidth = classWidth;
+    }
+
+    public String getSeparator() {
+        return separator;
+    }
+
+    public void setSeparator(String separator) {
+        this.separator = separator;
+    }
+
+    public String getStop() {
+        return stop;
+    }
+
+    /**
+     * Set stop string.
+     *
+     * @param stop string used to signal end of input stream (null = disable)
+     */
+    public void setStop(String stop) {
+        this.stop = stop;
+    }
+
+    public BufferedReader getInput() {
+        return input;
+    }
+
+    public PrintStream getOutput() {
+        return output;
+    }
+}
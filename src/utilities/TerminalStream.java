@@ -9,59 +9,41 @@ import java.io.*;
  * features to assist with testing and debugging.  Multiple
  * instances are allowed.  Each client class can create its own
  * stream manager that will be labelled automatically with the
- * class name.
+ * class name.  Settings and streams come from the instance's
+ * src.utilities.LinkContext, so stream managers of different
+ * links never interfere with each other.
  */
 
 public class TerminalStream {
-    private static boolean debug = true;            // on by default, see method setDebug
-    private static int classWidth = 0;              // class name field width (0 = no padding)
-    private static String separator = " : ";        // between class field and message ("" = none)
-    private static BufferedReader input = null;     // input stream shared by all instances
-    private static String stop = null;              // user enters this to signal end
-    private String className;                       // name of class using this instance
+    private final LinkContext context;              // configuration and streams of the link
+    private final String className;                 // name of class using this instance
 
 
     /**
-     * Create and initialize new test.TerminalStream.
+     * Create and initialize new test.TerminalStream on the standard link context.
      *
      * @param className name of class using this instance (must not be null)
      * @throws ProtocolException in the event of an error
      */
 
     public TerminalStream(String className) throws ProtocolException {
-        this.className = className;
-
-        // Create input stream if not yet initialized
-        // One input stream shared by all instances of terminal manager
-        if (input == null) {
-            try {
-                input = new BufferedReader(new InputStreamReader(System.in));
-            } catch (Exception e) {
-                throw new ProtocolException("input stream constructor failed : " + e.getMessage());
-            }
-        }
-    }
-
-    public static void setDebug(boolean debug) {
-        TerminalStream.debug = debug;
+        this(LinkContext.standard(), className);
     }
 
     /**
-     * Set field width for class name.
+     * Create and initialize new test.TerminalStream.
      *
-     * @param classWidth width (0 = don't pad the field)
+     * @param context   configuration and streams of the link using this instance
+     * @param className name of class using this instance (must not be null)
      */
-    public static void setClassWidth(int classWidth) {
-        TerminalStream.classWidth = classWidth;
+
+    public TerminalStream(LinkContext context, String className) {
+        this.context = context;
+        this.className = className;
     }
 
-    /**
-     * Set stop string.
-     *
-     * @param stop string used to signal end of input stream (null = disable)
-     */
-    public static void setStop(String stop) {
-        TerminalStream.stop = stop;
+    public LinkContext getContext() {
+        return context;
     }
 
     /**
@@ -71,7 +53,7 @@ public class TerminalStream {
      * @param text text to be output
      */
     public void printlnRaw(String text) {
-        System.out.println(text);
+        context.getOutput().println(text);
     }
 
     /**
@@ -81,8 +63,12 @@ public class TerminalStream {
      * @param text text to be output
      */
     public void printRaw(String text) {
-        System.out.print(text);
-        System.out.flush();  // force flush to ensure shown immediately
+        PrintStream output = context.getOutput();
+
+        synchronized (output) {
+            output.print(text);
+            output.flush();  // force flush to ensure shown immediately
+        }
     }
 
     /**
@@ -96,33 +82,40 @@ public class TerminalStream {
      * @param terminate true = terminate line (output \n at end)
      */
     private void printDiag(String message, boolean force, boolean terminate) {
-        if (debug || force) {
+        if (context.isDebug() || force) {
+            // Build the whole line first so that lines of concurrent threads never interleave
+            StringBuilder line = new StringBuilder();
 
             // Show name of class that output this message
-            System.out.print(className);
+            line.append(className);
 
-            if (className.length() < classWidth)
-                for (int i = className.length(); i < classWidth; i++)
-                    System.out.print(" ");
+            for (int i = className.length(); i < context.getClassWidth(); i++)
+                line.append(' ');
 
-            System.out.print(separator);
+            line.append(context.getSeparator());
 
             // Output message
             for (int i = 0; i < message.length(); i++) {
                 char ch = message.charAt(i);                // extract next char
 
                 if (ch >= 32 && ch <= 255)                  // printable?
-                    System.out.print(ch);                   // yes - output char
+                    line.append(ch);                        // yes - output char
                 else                                        // no - output code in hex
-                    System.out.printf("\\u%04x", (int) ch);
+                    line.append(String.format("\\u%04x", (int) ch));
             }
 
             // Terminate line
             // If no terminator, force flush to ensure text displayed immediately
-            if (terminate)
-                System.out.println();
-            else
-                System.out.flush();
+            PrintStream output = context.getOutput();
+
+            synchronized (output) {
+                if (terminate) {
+                    output.println(line);
+                } else {
+                    output.print(line);
+                    output.flush();
+                }
+            }
         }
     }
 
@@ -143,8 +136,8 @@ public class TerminalStream {
      * No action if debug mode disabled
      */
     public void printlnDiag() {
-        if (debug)
-            System.out.println();
+        if (context.isDebug())
+            context.getOutput().println();
     }
 
     /**
@@ -181,7 +174,7 @@ public class TerminalStream {
      * @param rawMessage  message to be displayed if debug mode disabled
      */
     public void printlnDiagOrRaw(String diagMessage, String rawMessage) {
-        if (debug)
+        if (context.isDebug())
             printlnDiag(diagMessage);
         else
             printlnRaw(rawMessage);
@@ -199,17 +192,18 @@ public class TerminalStream {
     public String readLine() throws ProtocolException {
         // Read line from standard input and trap errors
         // in.readline returns null if end of input stream detected
+        // BufferedReader.readLine is synchronized, so concurrent readers each get whole lines
         String line;
 
         try {
-            line = input.readLine();
+            line = context.getInput().readLine();
         } catch (Exception e) {
             throw new ProtocolException("readLine() failed : " + e.getMessage());
         }
 
         // Check for input matching the stop string
         // Return null to signal end of stream
-        if (line != null && line.equals(stop))
+        if (line != null && line.equals(context.getStop()))
             line = null;
 
         return line;
@@ -10,9 +10,31 @@ public class Usage {
      */
     public static final String MTU_ARG_PATTERN = "[-m|\\-\\-mtu]=(?<mtu>[0-9 ]+)";
     public static final String DEBUG_ARG_PATTERN = "[-d|\\-\\-debug]=(?<debug>true|false)";
+    public static final String MULTIPLEX_ARG_PATTERN = "^(-x|--multiplex)=(?<multiplex>true|false)$";
 
     public static final Pattern COMPILED_MTU_COMMAND_LINE_ARG = Pattern.compile(MTU_ARG_PATTERN, Pattern.DOTALL);
     public static final Pattern COMPILED_DEBUG_COMMAND_LINE_ARG = Pattern.compile(DEBUG_ARG_PATTERN, Pattern.DOTALL);
+    public static final Pattern COMPILED_MULTIPLEX_COMMAND_LINE_ARG = Pattern.compile(MULTIPLEX_ARG_PATTERN);
+
+    // Simulation options
+    public static final String NODES_ARG_PATTERN = "^(-n|--nodes)=(?<nodes>[0-9]+)$";
+    public static final String DEGREE_ARG_PATTERN = "^(-k|--degree)=(?<degree>[0-9]+)$";
+    public static final String PARTITIONS_ARG_PATTERN = "^(-p|--partitions)=(?<partitions>[0-9]+)$";
+    public static final String DURATION_ARG_PATTERN = "^(-t|--duration)=(?<duration>[0-9]+)$";
+
+    public static final Pattern COMPILED_NODES_COMMAND_LINE_ARG = Pattern.compile(NODES_ARG_PATTERN);
+    public static final Pattern COMPILED_DEGREE_COMMAND_LINE_ARG = Pattern.compile(DEGREE_ARG_PATTERN);
+    public static final Pattern COMPILED_PARTITIONS_COMMAND_LINE_ARG = Pattern.compile(PARTITIONS_ARG_PATTERN);
+    public static final Pattern COMPILED_DURATION_COMMAND_LINE_ARG = Pattern.compile(DURATION_ARG_PATTERN);
+
+    // Bonding options
+    public static final String LINKS_ARG_PATTERN = "^(-l|--links)=(?<links>[0-9]+)$";
+    public static final String MESSAGES_ARG_PATTERN = "^(-c|--messages)=(?<messages>[0-9]+)$";
+    public static final String FAIL_AFTER_ARG_PATTERN = "^(-f|--fail-after)=(?<failAfter>[0-9]+)$";
+
+    public static final Pattern COMPILED_LINKS_COMMAND_LINE_ARG = Pattern.compile(LINKS_ARG_PATTERN);
+    public static final Pattern COMPILED_MESSAGES_COMMAND_LINE_ARG = Pattern.compile(MESSAGES_ARG_PATTERN);
+    public static final Pattern COMPILED_FAIL_AFTER_COMMAND_LINE_ARG = Pattern.compile(FAIL_AFTER_ARG_PATTERN);
 
     public static void usageErrorExit(String errorMessage, int defaultMtu) {
         // Give command line usage info
@@ -20,6 +42,30 @@ public class Usage {
         System.err.println("Usage  : Running Receiver/Sender");
         System.err.println("Options: -m=<length>, --mtu=<length>               set MTU value (default is " + defaultMtu + ") i.e. --mtu=55");
         System.err.println("         -d=<true, false>, --debug=<true, false>   enable debug mode (default is true) i.e. --debug=true");
+        System.err.println("         -x=<true, false>, --multiplex=<true, false>   multiplex messages over streams (default is false) i.e. --multiplex=true");
+        System.exit(1);
+    }
+
+    public static void simulationUsageErrorExit(String errorMessage, int defaultMtu) {
+        // Give command line usage info
+        System.err.println(errorMessage);
+        System.err.println("Usage  : Running Simulation");
+        System.err.println("Options: -m=<length>, --mtu=<length>               set MTU value (default is " + defaultMtu + ") i.e. --mtu=55");
+        System.err.println("         -n=<count>, --nodes=<count>               number of nodes (default is 1000) i.e. --nodes=5000");
+        System.err.println("         -k=<count>, --degree=<count>              links per node (default is 4) i.e. --degree=8");
+        System.err.println("         -p=<count>, --partitions=<count>          threads to run the nodes on (default is one per core) i.e. --partitions=4");
+        System.err.println("         -t=<millis>, --duration=<millis>          virtual time messages are sent for (default is 1000) i.e. --duration=5000");
+        System.exit(1);
+    }
+
+    public static void bondingUsageErrorExit(String errorMessage, int defaultMtu) {
+        // Give command line usage info
+        System.err.println(errorMessage);
+        System.err.println("Usage  : Running Bonding");
+        System.err.println("Options: -m=<length>, --mtu=<length>               set MTU value (default is " + defaultMtu + ") i.e. --mtu=55");
+        System.err.println("         -l=<count>, --links=<count>               number of bonded links (default is 4) i.e. --links=8");
+        System.err.println("         -c=<count>, --messages=<count>            messages to send (default is 300) i.e. --messages=1000");
+        System.err.println("         -f=<frames>, --fail-after=<frames>        link 0 fails after this many frames (default is 0 = never) i.e. --fail-after=20");
         System.exit(1);
     }
 }